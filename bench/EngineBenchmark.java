@@ -0,0 +1,137 @@
+import players.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntSupplier;
+
+// The operations the JMH benchmarks in the benchmarks package measure. Game, State and the
+// rest of the engine live in the default package, which JMH benchmarks can't be in and can't
+// import from, so they get their operations from here by name (see benchmarks.Operations).
+// Every operation returns something that depends on its work, for JMH to sink into a blackhole.
+//
+// Build and run from the project root (see pom.xml), -prof gc adds the bytes each op allocates:
+//   mvn -P jmh package
+//   java -jar target/benchmarks.jar -prof gc
+//   java -jar target/benchmarks.jar -prof gc -p numOfPlayers=4 GameBenchmark.fullGame
+public class EngineBenchmark {
+    static final String[] STRATEGIES = {"PlayerNaive", "PlayerAI_NaivePlusPlus", "PlayerAI_GeeterPriffin", "PlayerAI_LookupTable"};
+    private static final int SCENARIOS = 1024;
+    private static final DiceSource DICE = new BulkDice(1);
+
+    // The operation `name` at a table of `numOfPlayers`, `strategy` is the player deciding in
+    // the rerollDice and leaveTokyo ones
+    public static IntSupplier operation(String name, String strategy, int numOfPlayers) {
+        switch (name) {
+            case "fullGame": return fullGame(numOfPlayers);
+            case "singleTurn": return singleTurn(numOfPlayers);
+            case "rollAndProcessDice": return rollAndProcessDice(numOfPlayers);
+            case "processDice": return processDice(numOfPlayers);
+            case "rerollDice": return rerollDice(strategy, numOfPlayers);
+            case "leaveTokyo": return leaveTokyo(strategy, numOfPlayers);
+            default: throw new IllegalArgumentException("No benchmark operation " + name);
+        }
+    }
+
+    // A whole game from newGame() to the winner, ops/s is games/sec
+    private static IntSupplier fullGame(int numOfPlayers) {
+        Game game = newGame(numOfPlayers);
+        long[] seed = {0};
+        List<String> log = new ArrayList<>();
+        return () -> game.play(1, seed[0]++, log);
+    }
+
+    private static IntSupplier singleTurn(int numOfPlayers) {
+        Game game = newGame(numOfPlayers);
+        long[] seed = {0};
+        List<String> log = new ArrayList<>();
+        game.newGame(seed[0]++);
+        return () -> {
+            if (game.isOver()) game.newGame(seed[0]++);
+            game.playTurn(log);
+            return game.getState().getCurrentPlayer();
+        };
+    }
+
+    // One roll with the current player's rerolls, then scoring it
+    private static IntSupplier rollAndProcessDice(int numOfPlayers) {
+        Game game = newGame(numOfPlayers);
+        long[] seed = {0};
+        game.newGame(seed[0]++);
+        return () -> {
+            if (game.isOver()) game.newGame(seed[0]++);
+            game.getState().rollDice(DICE, null);
+            game.rollDice();
+            return game.processDice() ? 1 : 0;
+        };
+    }
+
+    // Scoring a fresh roll without any rerolls, mostly processDice itself
+    private static IntSupplier processDice(int numOfPlayers) {
+        Game game = newGame(numOfPlayers);
+        long[] seed = {0};
+        game.newGame(seed[0]++);
+        return () -> {
+            if (game.isOver()) game.newGame(seed[0]++);
+            game.getState().rollDice(DICE, null);
+            return game.processDice() ? 1 : 0;
+        };
+    }
+
+    // The strategy's decisions on a fixed set of random board positions
+    private static IntSupplier rerollDice(String strategy, int numOfPlayers) {
+        Player player = newPlayer(strategy, 0);
+        State[] states = scenarios(numOfPlayers);
+        int[] next = {0};
+        return () -> {
+            State state = states[next[0]++ & (SCENARIOS - 1)];
+            state.setCurrentPlayer(0);
+            return player.rerollDice(state).length;
+        };
+    }
+
+    private static IntSupplier leaveTokyo(String strategy, int numOfPlayers) {
+        Player player = newPlayer(strategy, 0);
+        State[] states = scenarios(numOfPlayers);
+        int[] next = {0};
+        return () -> {
+            State state = states[next[0]++ & (SCENARIOS - 1)];
+            state.setCurrentPlayer(state.getInTokyo());
+            return player.leaveTokyo(state) ? 1 : 0;
+        };
+    }
+
+    private static State[] scenarios(int numOfPlayers) {
+        DiceSource random = new XoshiroDice(numOfPlayers);
+        State[] states = new State[SCENARIOS];
+        for (int i = 0; i < SCENARIOS; i++) {
+            State state = new State();
+            state.reset(numOfPlayers, 0, 0);
+            state.setCurrentTurn(i);
+            state.rollDice(random, null);
+            for (int p = 0; p < numOfPlayers; p++) {
+                state.setPlayerHealth(p, random.nextInt(12) + 1);
+                state.setPlayerFame(p, random.nextInt(20));
+            }
+            state.setInTokyo(random.nextInt(numOfPlayers));
+            states[i] = state;
+        }
+        return states;
+    }
+
+    // Seats the bundled strategies round the table in turn
+    private static Game newGame(int numOfPlayers) {
+        Player[] players = new Player[numOfPlayers];
+        String[] names = new String[numOfPlayers];
+        for (int j = 0; j < numOfPlayers; j++) {
+            names[j] = STRATEGIES[j % STRATEGIES.length];
+            players[j] = newPlayer(names[j], j);
+        }
+        return new Game(players, names, new BulkDice(), GameIntervals.OVERALL, GameIntervals.OVERALL);
+    }
+
+    private static Player newPlayer(String strategy, int id) {
+        Player player = PlayerRegistry.get().getFactory(strategy).get();
+        player.setId(id);
+        return player;
+    }
+}
@@ -0,0 +1,41 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+// Each strategy's rerollDice and leaveTokyo on a fixed set of random board positions, at 2 to
+// 6 players. Scores are decisions per second.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class DecisionBenchmark {
+    @Param({"PlayerNaive", "PlayerAI_NaivePlusPlus", "PlayerAI_GeeterPriffin", "PlayerAI_LookupTable"})
+    public String strategy;
+
+    @Param({"2", "3", "4", "5", "6"})
+    public int numOfPlayers;
+
+    private IntSupplier rerollDice;
+    private IntSupplier leaveTokyo;
+
+    @Setup
+    public void setUp() {
+        rerollDice = Operations.get("rerollDice", strategy, numOfPlayers);
+        leaveTokyo = Operations.get("leaveTokyo", strategy, numOfPlayers);
+    }
+
+    @Benchmark
+    public int rerollDice() {
+        return rerollDice.getAsInt();
+    }
+
+    @Benchmark
+    public int leaveTokyo() {
+        return leaveTokyo.getAsInt();
+    }
+}
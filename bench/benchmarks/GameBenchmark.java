@@ -0,0 +1,54 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+// The engine with the bundled strategies seated round the table, at 2 to 6 players. Scores are
+// operations per second, for fullGame that's games/sec.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class GameBenchmark {
+    @Param({"2", "3", "4", "5", "6"})
+    public int numOfPlayers;
+
+    private IntSupplier fullGame;
+    private IntSupplier singleTurn;
+    private IntSupplier rollAndProcessDice;
+    private IntSupplier processDice;
+
+    @Setup
+    public void setUp() {
+        fullGame = Operations.get("fullGame", null, numOfPlayers);
+        singleTurn = Operations.get("singleTurn", null, numOfPlayers);
+        rollAndProcessDice = Operations.get("rollAndProcessDice", null, numOfPlayers);
+        processDice = Operations.get("processDice", null, numOfPlayers);
+    }
+
+    @Benchmark
+    public int fullGame() {
+        return fullGame.getAsInt();
+    }
+
+    @Benchmark
+    public int singleTurn() {
+        return singleTurn.getAsInt();
+    }
+
+    // One roll with the current player's rerolls, then scoring it
+    @Benchmark
+    public int rollAndProcessDice() {
+        return rollAndProcessDice.getAsInt();
+    }
+
+    // Scoring a fresh roll without any rerolls
+    @Benchmark
+    public int processDice() {
+        return processDice.getAsInt();
+    }
+}
@@ -0,0 +1,22 @@
+package benchmarks;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.function.IntSupplier;
+
+// Gets the operations to measure from EngineBenchmark in the default package, which this
+// package can't see at compile time
+final class Operations {
+    private Operations() {}
+
+    static IntSupplier get(String name, String strategy, int numOfPlayers) {
+        try {
+            return (IntSupplier) Class.forName("EngineBenchmark")
+                    .getMethod("operation", String.class, String.class, int.class)
+                    .invoke(null, name, strategy, numOfPlayers);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Could not set up " + name + ": " + e.getCause(), e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("EngineBenchmark isn't on the class path", e);
+        }
+    }
+}
@@ -0,0 +1,264 @@
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+// Runs simulations from the command line without ever touching Swing/AWT, e.g.
+//   java -Djava.awt.headless=true BatchRunner --games 100000 --report overall --threads 8 PlayerNaive PlayerAI_GeeterPriffin
+// With --precision or --compare the games are the most it plays, it stops as soon as the target
+// is met (see StoppingRule). With --cache a seeded run reuses the games it already played in an
+// earlier run (see ResultCache). With --checkpoint a run saves where it got to every so often
+// and a run that died goes on from there when it's started again (see Checkpoint). With
+// --workers the games are played by that many other JVMs (see Coordinator), --port lets more
+// workers join from other shells.
+public class BatchRunner {
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+
+        int numOfGames = 1;
+        int reportResults = GameIntervals.OVERALL;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String outFile = null;
+        String journalFile = null;
+        Long seed = null;
+        int replay = 0;
+        boolean metrics = false;
+        long callBudget = 0;
+        long gameBudget = 0;
+        int disqualifyAfter = 0;
+        StoppingRule stoppingRule = null;
+        String cacheDir = null;
+        String checkpointFile = null;
+        long checkpointSeconds = Checkpoint.DEFAULT_INTERVAL_MILLIS / 1000;
+        int workers = 0;
+        int workerThreads = 1;
+        long workerTimeoutSeconds = Coordinator.DEFAULT_WORKER_TIMEOUT_MILLIS / 1000;
+        Integer port = null;
+        List<String> players = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--games":
+                        numOfGames = Integer.parseInt(args[++i]);
+                        break;
+                    case "--report":
+                        reportResults = parseInterval(args[++i]);
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "--seed":
+                        seed = Long.parseLong(args[++i]);
+                        break;
+                    case "--replay":
+                        replay = Integer.parseInt(args[++i]);
+                        break;
+                    case "--journal":
+                        journalFile = args[++i];
+                        break;
+                    case "--metrics":
+                        metrics = true;
+                        break;
+                    case "--call-budget":
+                        callBudget = Long.parseLong(args[++i]);
+                        break;
+                    case "--game-budget":
+                        gameBudget = Long.parseLong(args[++i]);
+                        break;
+                    case "--disqualify-after":
+                        disqualifyAfter = Integer.parseInt(args[++i]);
+                        break;
+                    case "--precision":
+                        // In percent, e.g. 0.5 for +/-0.5%
+                        stoppingRule = StoppingRule.precision(Double.parseDouble(args[++i]) / 100);
+                        break;
+                    case "--compare":
+                        stoppingRule = StoppingRule.significance(Integer.parseInt(args[++i]) - 1, Integer.parseInt(args[++i]) - 1);
+                        break;
+                    case "--cache":
+                        cacheDir = ResultCache.defaultDir().toString();
+                        break;
+                    case "--cache-dir":
+                        cacheDir = args[++i];
+                        break;
+                    case "--checkpoint":
+                        checkpointFile = args[++i];
+                        break;
+                    case "--checkpoint-every":
+                        checkpointSeconds = Long.parseLong(args[++i]);
+                        break;
+                    case "--workers":
+                        workers = Integer.parseInt(args[++i]);
+                        break;
+                    case "--worker-threads":
+                        workerThreads = Integer.parseInt(args[++i]);
+                        break;
+                    case "--worker-timeout":
+                        workerTimeoutSeconds = Long.parseLong(args[++i]);
+                        break;
+                    case "--port":
+                        port = Integer.parseInt(args[++i]);
+                        break;
+                    case "--out":
+                        outFile = args[++i];
+                        break;
+                    case "--help":
+                        usage(null);
+                        return;
+                    default:
+                        if (args[i].startsWith("--")) throw new IllegalArgumentException("Unknown option " + args[i]);
+                        players.add(args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            usage("Missing value for " + args[args.length - 1]);
+            return;
+        } catch (IllegalArgumentException e) {
+            usage(e.getMessage());
+            return;
+        }
+
+        if (players.size() < 2 || players.size() > 6) {
+            usage("Need between 2 and 6 players");
+            return;
+        }
+        if (numOfGames <= 0) {
+            usage("Please enter a positive number of games");
+            return;
+        }
+        if (stoppingRule != null && !stoppingRule.fits(players.size())) {
+            usage("--compare needs two player numbers between 1 and " + players.size());
+            return;
+        }
+        if (cacheDir != null && seed == null) {
+            usage("--cache needs a --seed, runs without one never play the same games twice");
+            return;
+        }
+        if (checkpointSeconds <= 0) {
+            usage("--checkpoint-every needs a positive number of seconds");
+            return;
+        }
+        if (workers < 0 || workerThreads < 1) {
+            usage("--workers and --worker-threads need positive numbers");
+            return;
+        }
+        if (workers > 0 || port != null) {
+            if (journalFile != null || metrics || callBudget > 0 || gameBudget > 0 || reportResults != GameIntervals.OVERALL) {
+                usage("Workers only report the overall results, without --journal, --metrics or budgets");
+                return;
+            }
+        }
+        if (replay > 0 && seed == null) {
+            usage("--replay needs the --seed of the original run");
+            return;
+        }
+
+        PrintStream out = System.out;
+        if (outFile != null) {
+            try {
+                out = new PrintStream(new FileOutputStream(outFile), false);
+            } catch (FileNotFoundException e) {
+                System.err.println("Can not write to " + outFile + ": " + e.getMessage());
+                System.exit(1);
+            }
+        }
+
+        // Headless runs never pause between games
+        int pausing = 1;
+        if (replay > 0) {
+            // Play just that one game again, exactly as it went in the original run
+            numOfGames = 1;
+            reportResults = GameIntervals.PER_TURN;
+            threads = 1;
+        }
+
+        GameEngine engine;
+        try {
+            engine = new GameEngine(players.size(), players.toArray(new String[0]), numOfGames, reportResults, pausing, threads, new PrintStreamLogger(out));
+        } catch (IllegalArgumentException e) {
+            usage(e.getMessage());
+            return;
+        }
+        if (seed != null) engine.setSeed(seed);
+        if (replay > 0) engine.setFirstGame(replay - 1);
+        engine.setCollectMetrics(metrics);
+        engine.setDecisionBudget(callBudget, gameBudget, disqualifyAfter);
+        if (replay == 0) engine.setStoppingRule(stoppingRule);
+        if (cacheDir != null) engine.setResultCache(new ResultCache(Paths.get(cacheDir)));
+        if (checkpointFile != null) engine.setCheckpoint(Paths.get(checkpointFile), checkpointSeconds * 1000);
+        if (journalFile != null) {
+            try {
+                engine.setJournal(new JournalWriter(Paths.get(journalFile), players.size()));
+            } catch (IOException e) {
+                System.err.println("Can not write journal " + journalFile + ": " + e.getMessage());
+                System.exit(1);
+            }
+        }
+        Coordinator coordinator = null;
+        if ((workers > 0 || port != null) && replay == 0) {
+            try {
+                coordinator = new Coordinator(port != null ? port : 0);
+                coordinator.setWorkerTimeout(workerTimeoutSeconds * 1000);
+                coordinator.launch(workers, workerThreads);
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Can not start the workers: " + e.getMessage());
+                System.exit(1);
+            }
+            if (port != null) System.err.println("Workers can join with: java ShardWorker localhost:" + coordinator.getPort() + " [--threads N]");
+            engine.setCoordinator(coordinator);
+        }
+        try {
+            engine.run();
+        } finally {
+            if (coordinator != null) coordinator.close();
+        }
+        out.flush();
+        if (out != System.out) out.close();
+    }
+
+    private static int parseInterval(String s) {
+        switch (s.toLowerCase()) {
+            case "per-turn":
+            case "turn":
+                return GameIntervals.PER_TURN;
+            case "per-game":
+            case "game":
+                return GameIntervals.PER_GAME;
+            case "overall":
+                return GameIntervals.OVERALL;
+            default:
+                throw new IllegalArgumentException("Unknown report interval " + s);
+        }
+    }
+
+    private static void usage(String error) {
+        if (error != null) System.err.println("Error: " + error);
+        System.err.println("Usage: BatchRunner [--games N] [--report per-turn|per-game|overall] [--threads N] [--seed N [--replay GAME]] [--journal FILE] [--metrics] [--call-budget MS] [--game-budget MS] [--disqualify-after N] [--precision PCT | --compare P1 P2] [--cache | --cache-dir DIR] [--checkpoint FILE [--checkpoint-every SECONDS]] [--workers N [--worker-threads N] [--worker-timeout SECONDS]] [--port PORT] [--out FILE] Player1 Player2 [...Player6]");
+        if (error != null) System.exit(2);
+    }
+
+    // Writes each game's lines in one go so games from different shards don't interleave
+    static class PrintStreamLogger implements GameLogger {
+        private final PrintStream out;
+
+        PrintStreamLogger(PrintStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public synchronized void log(String s) {
+            out.println(s);
+        }
+
+        @Override
+        public synchronized void log(List<String> lines) {
+            for (String line : lines) {
+                out.println(line);
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+import javax.swing.*;
+import javax.swing.text.BadLocationException;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+// Text area for long streams of log lines. Lines are appended to the document in batches and
+// only the last maxLines lines are kept on screen, so adding a line costs the same no matter how
+// long the run has been going. Once lines start to drop out of the view every line can also go
+// to a transcript file, so nothing is lost. If the file can't be written the view says so and
+// goes on without it. Must only be used from the EDT.
+public class BoundedLogArea extends JTextArea {
+    private static final long serialVersionUID = 1L;
+
+    private final int maxLines;
+    // Where the transcript goes once it's needed
+    private File spillFile;
+    private File transcriptFile;
+    private BufferedWriter transcript;
+    private boolean trimmed = false;
+    // Why there's no transcript, and whether the view has said so yet
+    private String transcriptProblem;
+    private boolean problemShown;
+
+    public BoundedLogArea(int maxLines) {
+        this.maxLines = maxLines;
+    }
+
+    // Writes the transcript to `file` as soon as lines would drop out of the view, starting with
+    // the ones still in it. Runs that never fill the view don't create the file.
+    public void spillTo(File file) {
+        closeTranscript();
+        spillFile = file;
+        transcriptFile = null;
+        transcriptProblem = null;
+    }
+
+    // The file of the transcript, null until there is one
+    public File getTranscriptFile() {
+        return transcriptFile;
+    }
+
+    // Why the transcript stopped, null if it didn't
+    public String getTranscriptProblem() {
+        return transcriptProblem;
+    }
+
+    // True once lines have been dropped from the view
+    public boolean isTrimmed() {
+        return trimmed;
+    }
+
+    // Entries may hold several lines each, e.g. a whole turn
+    public void appendLines(List<String> lines) {
+        if (lines.isEmpty()) return;
+
+        StringBuilder batch = new StringBuilder();
+        for (String line : lines) {
+            batch.append(line).append('\n');
+        }
+        String text = batch.toString();
+        int newLines = countLines(text);
+        // Before anything is trimmed, so the transcript starts with the first line
+        if (transcript == null && spillFile != null && getLineCount() + newLines > maxLines) startTranscript();
+        writeTranscript(text);
+
+        // A batch bigger than the view would only be inserted to be trimmed again right away
+        if (newLines > maxLines) {
+            text = text.substring(lineStart(text, newLines - maxLines));
+            trimmed = true;
+        }
+
+        append(text);
+        // After the batch, so it isn't the first line to be trimmed away
+        if (transcriptProblem != null && !problemShown) {
+            append(transcriptProblem + "\n");
+            problemShown = true;
+        }
+        trim();
+        setCaretPosition(getDocument().getLength());
+    }
+
+    public void closeTranscript() {
+        if (transcript == null) return;
+        BufferedWriter open = transcript;
+        transcript = null;
+        try {
+            open.close();
+        } catch (IOException e) {
+            report("Could not close the transcript " + transcriptFile + ": " + e.getMessage());
+        }
+    }
+
+    // Everything in the view so far goes first, nothing has been trimmed yet
+    private void startTranscript() {
+        File file = spillFile;
+        spillFile = null;
+        try {
+            transcript = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+            transcriptFile = file;
+        } catch (IOException e) {
+            report("Could not open the transcript " + file + ", lines that scroll away are lost: " + e.getMessage());
+            return;
+        }
+        writeTranscript(getText());
+    }
+
+    private void trim() {
+        int excess = getLineCount() - maxLines;
+        if (excess <= 0) return;
+
+        try {
+            getDocument().remove(0, getLineEndOffset(excess - 1));
+            trimmed = true;
+        } catch (BadLocationException e) {
+            // Can't happen, the offset comes from the document itself
+        }
+    }
+
+    private void writeTranscript(String text) {
+        if (transcript == null) return;
+        try {
+            transcript.write(text);
+            transcript.flush();
+        } catch (IOException e) {
+            closeTranscript();
+            transcriptFile = null;
+            report("Could not write the transcript, lines that scroll away from now on are lost: " + e.getMessage());
+        }
+    }
+
+    // Shown once in the view itself, the transcript is off after a problem
+    private void report(String problem) {
+        transcriptProblem = problem;
+        problemShown = false;
+    }
+
+    private static int countLines(String text) {
+        int count = 0;
+        for (int i = text.indexOf('\n'); i >= 0; i = text.indexOf('\n', i + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    // Offset of the line after the first `lines` lines of `text`
+    private static int lineStart(String text, int lines) {
+        int offset = 0;
+        for (int l = 0; l < lines; l++) {
+            offset = text.indexOf('\n', offset) + 1;
+        }
+        return offset;
+    }
+}
@@ -0,0 +1,45 @@
+// Rolls all six dice from a single 64-bit random word instead of drawing one number per die.
+// Each 32-bit half is treated as a fraction in [0, 1) and multiplied by 6 three times in a row:
+// the integer part of every product is a face and the fractional part feeds the next one.
+// Three faces use under 8 of the 32 bits, so the bias this leaves is below 1 in 10^7.
+public class BulkDice extends XoshiroDice {
+    public BulkDice() {
+        super();
+    }
+
+    public BulkDice(long seed) {
+        super(seed);
+    }
+
+    @Override
+    public void roll(int[] dice, boolean[] reroll) {
+        if (dice.length != 6) {
+            super.roll(dice, reroll);
+            return;
+        }
+
+        long bits = nextLong();
+        long u = bits >>> 32;
+        long v = bits & 0xFFFFFFFFL;
+
+        // Every face is worked out even if that die is kept, so which dice get rerolled
+        // never changes what the others come out as
+        u *= 6;
+        set(dice, reroll, 0, (int) (u >>> 32) + 1);
+        u = (u & 0xFFFFFFFFL) * 6;
+        set(dice, reroll, 1, (int) (u >>> 32) + 1);
+        u = (u & 0xFFFFFFFFL) * 6;
+        set(dice, reroll, 2, (int) (u >>> 32) + 1);
+
+        v *= 6;
+        set(dice, reroll, 3, (int) (v >>> 32) + 1);
+        v = (v & 0xFFFFFFFFL) * 6;
+        set(dice, reroll, 4, (int) (v >>> 32) + 1);
+        v = (v & 0xFFFFFFFFL) * 6;
+        set(dice, reroll, 5, (int) (v >>> 32) + 1);
+    }
+
+    private static void set(int[] dice, boolean[] reroll, int index, int face) {
+        if (reroll == null || reroll[index]) dice[index] = face;
+    }
+}
@@ -0,0 +1,203 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Where a long run has got to, saved to a file every so often so a run whose JVM died can go on
+// from there instead of starting over (see GameEngine.setCheckpoint). Every game has its own seed
+// and a shard plays its games in order, so the next game a shard would play is all there is to
+// its dice: a shard is saved as its range, that game and the wins and stats of the games before.
+//
+// The file is only used again by the same run: the same players, bytecode and settings (see
+// ResultCache.codeKey), the same games and, if the run has one, the same seed. A run without a
+// seed takes the seed of the checkpoint.
+public class Checkpoint {
+    private static final int MAGIC = 0x4B4F5443; // "KOTC"
+    private static final int VERSION = 1;
+    public static final long DEFAULT_INTERVAL_MILLIS = 30_000;
+
+    private final Path file;
+    private final long intervalNanos;
+    private final String key;
+    private final int numOfPlayers;
+    private final boolean withStats;
+    private long seed;
+    private int firstGame;
+    private int numOfGames;
+    private final List<Shard> shards = new ArrayList<>();
+    private final AtomicLong nextWrite = new AtomicLong();
+    // Whether the file is this run's, only then is it deleted at the end
+    private boolean owned;
+
+    // What a shard had played the last time it said so. Written by the shard, read by whichever
+    // shard writes the file, so only touched while holding its lock.
+    static class Shard {
+        final int from;
+        final int to;
+        private int next;
+        private final int[] wins;
+        private final GameStats stats;
+
+        Shard(int from, int to, int numOfPlayers, boolean withStats) {
+            this.from = from;
+            this.to = to;
+            this.next = from;
+            this.wins = new int[numOfPlayers];
+            this.stats = withStats ? new GameStats(numOfPlayers) : null;
+        }
+
+        synchronized void update(int next, int[] wins, GameStats stats) {
+            this.next = next;
+            System.arraycopy(wins, 0, this.wins, 0, this.wins.length);
+            if (this.stats != null) {
+                this.stats.clear();
+                this.stats.add(stats);
+            }
+        }
+
+        synchronized int getNext() {
+            return next;
+        }
+
+        synchronized int[] getWins() {
+            return wins.clone();
+        }
+
+        // Adds the saved stats to `stats`
+        synchronized void addStatsTo(GameStats stats) {
+            if (this.stats != null) stats.add(this.stats);
+        }
+    }
+
+    public Checkpoint(Path file, long intervalMillis, String key, int numOfPlayers, boolean withStats) {
+        this.file = file;
+        this.intervalNanos = intervalMillis * 1_000_000L;
+        this.key = key;
+        this.numOfPlayers = numOfPlayers;
+        this.withStats = withStats;
+    }
+
+    // Where the GUI keeps the checkpoint of a run of `players` over `numOfGames` games, one file
+    // per such run so runs of other players never take or overwrite each other's
+    public static Path fileFor(String[] players, int numOfGames) {
+        return Paths.get(System.getProperty("user.home"), ".kot", "checkpoints", String.join("-", players) + "-" + numOfGames + ".kotc");
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    // The seed of the resumed run
+    public long getSeed() {
+        return seed;
+    }
+
+    // The shards of the file if it holds games [firstGame, firstGame + numOfGames) of this run,
+    // null if there's no file. Throws if the file is of another run or can't be read.
+    List<Shard> resume(long seed, boolean seeded, int firstGame, int numOfGames) throws IOException {
+        List<Shard> saved = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) throw new IOException("not a checkpoint of this version");
+            if (!in.readUTF().equals(key) || in.readInt() != numOfPlayers) throw new IOException("it's of other players or settings");
+            if (in.readBoolean() != withStats) throw new IOException("it's of a run with other stats");
+            long savedSeed = in.readLong();
+            if (seeded && savedSeed != seed) throw new IOException("it's of a run with seed " + savedSeed);
+            if (in.readInt() != firstGame || in.readInt() != numOfGames) throw new IOException("it's of other games");
+
+            int count = in.readInt();
+            for (int s = 0; s < count; s++) {
+                Shard shard = new Shard(in.readInt(), in.readInt(), numOfPlayers, withStats);
+                shard.next = in.readInt();
+                if (shard.next < shard.from || shard.next > shard.to) throw new IOException("it's damaged");
+                for (int j = 0; j < numOfPlayers; j++) {
+                    shard.wins[j] = in.readInt();
+                }
+                if (withStats) shard.stats.add(GameStats.read(in, numOfPlayers));
+                saved.add(shard);
+            }
+            this.seed = savedSeed;
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        use(firstGame, numOfGames, saved);
+        owned = true;
+        return saved;
+    }
+
+    // Starts from nothing with a shard per range {from, to}
+    List<Shard> start(int firstGame, int numOfGames, long seed, List<int[]> ranges) {
+        List<Shard> fresh = new ArrayList<>();
+        for (int[] range : ranges) {
+            fresh.add(new Shard(range[0], range[1], numOfPlayers, withStats));
+        }
+        this.seed = seed;
+        use(firstGame, numOfGames, fresh);
+        return fresh;
+    }
+
+    private void use(int firstGame, int numOfGames, List<Shard> shards) {
+        this.firstGame = firstGame;
+        this.numOfGames = numOfGames;
+        this.shards.clear();
+        this.shards.addAll(shards);
+        nextWrite.set(System.nanoTime() + intervalNanos);
+    }
+
+    // Games the shards had already played when they were resumed or last updated
+    int getGamesDone() {
+        int done = 0;
+        for (Shard shard : shards) {
+            done += shard.getNext() - shard.from;
+        }
+        return done;
+    }
+
+    // True for one caller once the interval is over, that one should write()
+    boolean isDue() {
+        long now = System.nanoTime();
+        long due = nextWrite.get();
+        return now - due >= 0 && nextWrite.compareAndSet(due, now + intervalNanos);
+    }
+
+    // Replaces the file in one step (see ResultCache.writeAtomically), a crash while writing
+    // leaves the last one
+    synchronized void write() throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null) Files.createDirectories(dir);
+        ResultCache.writeAtomically(file, out -> {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(key);
+            out.writeInt(numOfPlayers);
+            out.writeBoolean(withStats);
+            out.writeLong(seed);
+            out.writeInt(firstGame);
+            out.writeInt(numOfGames);
+            out.writeInt(shards.size());
+            for (Shard shard : shards) {
+                synchronized (shard) {
+                    out.writeInt(shard.from);
+                    out.writeInt(shard.to);
+                    out.writeInt(shard.next);
+                    for (int win : shard.wins) {
+                        out.writeInt(win);
+                    }
+                    if (withStats) shard.stats.write(out);
+                }
+            }
+        });
+        owned = true;
+    }
+
+    // The run is over, its checkpoint isn't needed anymore
+    synchronized void delete() throws IOException {
+        if (owned) Files.deleteIfExists(file);
+        owned = false;
+    }
+}
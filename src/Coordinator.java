@@ -0,0 +1,365 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+// Plays a run's games in other JVMs on this machine, so strategies with static state don't
+// share it and no single heap gets big. The coordinator listens on a localhost port, starts
+// worker processes (see ShardWorker) with launch() and takes any that connect by themselves.
+// A run is cut into shards of game numbers, each worker plays one shard at a time with its own
+// GameEngine and sends back its wins and stats. While it plays it says every HEARTBEAT_MILLIS how
+// many games it has finished. A shard whose worker dies, goes quiet or finishes no game for the
+// worker timeout goes to another one.
+// Every game is seeded from its number, and the shards are added up in order, so the results
+// are the same as on one JVM whatever the workers and however often they died.
+public class Coordinator implements AutoCloseable {
+    static final int MAGIC = 0x4B4F5457; // "KOTW"
+    static final int VERSION = 2;
+    // Messages, coordinator to worker
+    static final int SHARD = 1;
+    // Worker to coordinator
+    static final int DONE = 1;
+    static final int FAILED = 2;
+    static final int REFUSED = 3;
+    static final int PLAYING = 4;
+
+    // How often a worker says how far it has got with its shard
+    static final long HEARTBEAT_MILLIS = 5_000;
+    public static final long DEFAULT_WORKER_TIMEOUT_MILLIS = 60_000;
+
+    // Most games in one shard, what a worker that dies loses at worst
+    private static final int MAX_SHARD_GAMES = 50_000;
+    // Shards a run is cut into at least, so the workers finish at about the same time
+    private static final int MIN_SHARDS = 64;
+    // How long a run waits without any worker before it gives up
+    private static final long NO_WORKER_MILLIS = 60_000;
+
+    private final ServerSocket server;
+    private final List<Process> processes = new ArrayList<>();
+    private final List<Socket> sockets = new ArrayList<>();
+    private final Thread acceptor;
+    private int workers;
+    private boolean closed;
+    private volatile long workerTimeout = DEFAULT_WORKER_TIMEOUT_MILLIS;
+
+    // The run being played, guarded by this
+    private final Deque<Shard> queue = new ArrayDeque<>();
+    // Counts the runs, so an answer for a shard of an earlier run that failed is ignored
+    private int run;
+    private int[][] shardWins;
+    private GameStats[] shardStats;
+    private int shardsLeft;
+    private String failure;
+
+    // One shard of a run: games [from, to) of the players with the master seed. `key` is
+    // ResultCache.codeKey of the players, a worker only plays the shard if it has the same.
+    // `run` stays with the coordinator.
+    static class Shard {
+        final int run;
+        final int id;
+        final String key;
+        final String[] players;
+        final long seed;
+        final int from;
+        final int to;
+
+        Shard(int run, int id, String key, String[] players, long seed, int from, int to) {
+            this.run = run;
+            this.id = id;
+            this.key = key;
+            this.players = players;
+            this.seed = seed;
+            this.from = from;
+            this.to = to;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeByte(SHARD);
+            out.writeInt(id);
+            out.writeUTF(key);
+            out.writeInt(players.length);
+            for (String player : players) {
+                out.writeUTF(player);
+            }
+            out.writeLong(seed);
+            out.writeInt(from);
+            out.writeInt(to);
+        }
+
+        static Shard read(DataInputStream in) throws IOException {
+            if (in.readByte() != SHARD) throw new IOException("Unknown message from the coordinator");
+            int id = in.readInt();
+            String key = in.readUTF();
+            String[] players = new String[in.readInt()];
+            for (int j = 0; j < players.length; j++) {
+                players[j] = in.readUTF();
+            }
+            return new Shard(0, id, key, players, in.readLong(), in.readInt(), in.readInt());
+        }
+    }
+
+    // Listens on `port` of the loopback address, 0 for any free port
+    public Coordinator(int port) throws IOException {
+        server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        acceptor = new Thread(this::accept, "coordinator");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    // Starts `count` worker JVMs with this JVM's java, class path and kot.* settings, each
+    // playing its shards on `threads` threads
+    public void launch(int count, int threads) throws IOException {
+        String java = ProcessHandle.current().info().command()
+                .orElse(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        List<String> command = new ArrayList<>();
+        command.add(java);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith("kot.")) command.add("-D" + name + "=" + System.getProperty(name));
+        }
+        command.add("ShardWorker");
+        command.add("127.0.0.1:" + getPort());
+        command.add("--threads");
+        command.add(String.valueOf(threads));
+
+        for (int w = 0; w < count; w++) {
+            Process process = new ProcessBuilder(command)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+            synchronized (this) {
+                processes.add(process);
+            }
+        }
+    }
+
+    // How long a worker may go without a word or without finishing a game before it's taken for
+    // hung, disconnected and its shard played by another. It has to cover the slowest game.
+    public void setWorkerTimeout(long millis) {
+        if (millis < 3 * HEARTBEAT_MILLIS) throw new IllegalArgumentException("The worker timeout must be at least " + 3 * HEARTBEAT_MILLIS / 1000 + " seconds");
+        workerTimeout = millis;
+    }
+
+    // Workers connected right now
+    public synchronized int getWorkers() {
+        return workers;
+    }
+
+    // Plays games [firstGame, firstGame + numOfGames) on the workers and returns the wins, the
+    // stats are added to `stats`. `progress` hears about the games of every finished shard.
+    public int[] run(String[] players, long seed, int firstGame, int numOfGames, GameStats stats, IntConsumer progress) throws IOException {
+        String key = ResultCache.codeKey(players);
+        int numOfShards = (int) Math.min(numOfGames, Math.max(MIN_SHARDS, ((long) numOfGames + MAX_SHARD_GAMES - 1) / MAX_SHARD_GAMES));
+        int[] wins = new int[players.length];
+
+        synchronized (this) {
+            if (closed) throw new IOException("The coordinator is closed");
+            if (shardsLeft > 0) throw new IllegalStateException("The coordinator is already playing a run");
+            shardWins = new int[numOfShards][];
+            shardStats = new GameStats[numOfShards];
+            shardsLeft = numOfShards;
+            failure = null;
+            run++;
+            for (int s = 0; s < numOfShards; s++) {
+                int from = firstGame + (int) ((long) numOfGames * s / numOfShards);
+                int to = firstGame + (int) ((long) numOfGames * (s + 1) / numOfShards);
+                queue.add(new Shard(run, s, key, players, seed, from, to));
+            }
+            notifyAll();
+
+            try {
+                boolean[] reported = new boolean[numOfShards];
+                long lonelySince = System.currentTimeMillis();
+                while (shardsLeft > 0 && failure == null) {
+                    if (workers > 0) lonelySince = System.currentTimeMillis();
+                    else if (System.currentTimeMillis() - lonelySince > NO_WORKER_MILLIS) failure = "No worker to play the games";
+                    wait(1000);
+
+                    for (int s = 0; s < numOfShards; s++) {
+                        if (shardWins[s] != null && !reported[s]) {
+                            reported[s] = true;
+                            progress.accept(gamesOf(s, numOfGames, numOfShards));
+                        }
+                    }
+                }
+                if (failure != null) throw new IOException(failure);
+
+                // Adding up in shard order keeps the merge the same whoever played what
+                for (int s = 0; s < numOfShards; s++) {
+                    for (int j = 0; j < wins.length; j++) {
+                        wins[j] += shardWins[s][j];
+                    }
+                    if (stats != null) stats.add(shardStats[s]);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the workers");
+            } finally {
+                queue.clear();
+                shardsLeft = 0;
+                shardWins = null;
+                shardStats = null;
+            }
+        }
+        return wins;
+    }
+
+    private static int gamesOf(int shard, int numOfGames, int numOfShards) {
+        return (int) ((long) numOfGames * (shard + 1) / numOfShards - (long) numOfGames * shard / numOfShards);
+    }
+
+    private void accept() {
+        while (true) {
+            Socket socket;
+            try {
+                socket = server.accept();
+            } catch (IOException e) {
+                // Closed
+                return;
+            }
+            Thread thread = new Thread(() -> serve(socket), "coordinator-worker");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    // Hands shards to one worker until it dies or the coordinator is closed
+    private void serve(Socket socket) {
+        Shard shard = null;
+        try {
+            socket.setTcpNoDelay(true);
+            // Covers a worker that stopped altogether, PLAYING below one whose games stopped
+            socket.setSoTimeout((int) Math.min(Integer.MAX_VALUE, workerTimeout));
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) throw new IOException("Not a worker of this version");
+            synchronized (this) {
+                if (closed) throw new IOException("Closed");
+                sockets.add(socket);
+                workers++;
+                notifyAll();
+            }
+
+            while (true) {
+                synchronized (this) {
+                    while (!closed && queue.isEmpty()) {
+                        wait();
+                    }
+                    if (closed) return;
+                    shard = queue.poll();
+                }
+                shard.write(out);
+                out.flush();
+
+                int message;
+                int played = -1;
+                long playedAt = System.currentTimeMillis();
+                while ((message = in.readByte()) == PLAYING) {
+                    if (in.readInt() != shard.id) throw new IOException("Worker answered for the wrong shard");
+                    int games = in.readInt();
+                    long now = System.currentTimeMillis();
+                    if (games > played) {
+                        played = games;
+                        playedAt = now;
+                    } else if (now - playedAt > workerTimeout) {
+                        throw new IOException("Worker finished no game in " + workerTimeout + " ms");
+                    }
+                }
+                int id = in.readInt();
+                if (id != shard.id) throw new IOException("Worker answered for the wrong shard");
+                if (message == FAILED) {
+                    // The games themselves failed, another worker would fail the same way
+                    String error = in.readUTF();
+                    synchronized (this) {
+                        if (shard.run == run && failure == null) failure = "Games " + (shard.from + 1) + "-" + shard.to + " failed on a worker: " + error;
+                        notifyAll();
+                    }
+                    shard = null;
+                    continue;
+                }
+                // A worker with other classes or settings leaves, its shard goes to the others
+                if (message == REFUSED) throw new IOException("Worker refused: " + in.readUTF());
+                if (message != DONE) throw new IOException("Unknown message from a worker");
+
+                int[] wins = new int[shard.players.length];
+                for (int j = 0; j < wins.length; j++) {
+                    wins[j] = in.readInt();
+                }
+                GameStats stats = GameStats.read(in, wins.length);
+                synchronized (this) {
+                    if (shard.run == run && shardWins != null && shardWins[shard.id] == null) {
+                        shardWins[shard.id] = wins;
+                        shardStats[shard.id] = stats;
+                        shardsLeft--;
+                        notifyAll();
+                    }
+                }
+                shard = null;
+            }
+        } catch (IOException | InterruptedException e) {
+            // The worker is gone or hung, its shard goes back for another one to play
+        } finally {
+            synchronized (this) {
+                if (sockets.remove(socket)) workers--;
+                if (shard != null && shard.run == run && shardsLeft > 0) queue.addFirst(shard);
+                notifyAll();
+            }
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Nothing left to do with it
+            }
+        }
+    }
+
+    // Disconnects the workers, the ones it launched exit
+    @Override
+    public void close() {
+        List<Socket> open;
+        synchronized (this) {
+            closed = true;
+            open = new ArrayList<>(sockets);
+            notifyAll();
+        }
+        try {
+            server.close();
+        } catch (IOException e) {
+            // Nothing left to do with it
+        }
+        for (Socket socket : open) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Nothing left to do with it
+            }
+        }
+        List<Process> launched;
+        synchronized (this) {
+            launched = new ArrayList<>(processes);
+        }
+        for (Process process : launched) {
+            try {
+                if (!process.waitFor(5, TimeUnit.SECONDS)) process.destroy();
+            } catch (InterruptedException e) {
+                process.destroy();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,255 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+// Keeps a player that loops or thinks too long in rerollDice/leaveTokyo from stalling a run.
+// Games still call their players directly on their own thread, each shard only marks in its
+// Slot when a decision starts and ends. One background thread looks at every slot each tick:
+// - a decision that runs past its budget is interrupted and thrown away (the game uses the
+//   default action), and if it still hasn't returned STOP_AFTER later its thread is stopped
+//   inside the player's code
+// - each tick is billed to the seat that is deciding at that moment, which adds up to the time
+//   every seat spends per game without the games ever reading the clock
+public class DecisionWatchdog {
+    static final int REROLL_DICE = 0;
+    static final int LEAVE_TOKYO = 1;
+    private static final String[] METHODS = {"rerollDice", "leaveTokyo"};
+
+    private static final long STOP_AFTER = 1_000_000_000L;
+    private static final long MIN_TICK = 200_000L;
+    private static final long MAX_TICK = 50_000_000L;
+
+    private final String[] playerClassNames;
+    private final long perCallNanos;
+    private final long perGameNanos;
+    private final int disqualifyAfter;
+    private final GameLogger logger;
+    private final long tickNanos;
+
+    private final List<Slot> slots = new CopyOnWriteArrayList<>();
+    private final AtomicIntegerArray violations;
+    private final AtomicIntegerArray disqualified;
+    private volatile boolean running;
+    private volatile boolean canStop = true;
+    private Thread thread;
+
+    // A budget of 0 means no limit. disqualifyAfter is how many violations a seat gets before it
+    // isn't asked anymore for the rest of the run (0 = never).
+    public DecisionWatchdog(String[] playerClassNames, long perCallNanos, long perGameNanos, int disqualifyAfter, GameLogger logger) {
+        this.playerClassNames = playerClassNames;
+        this.perCallNanos = perCallNanos;
+        this.perGameNanos = perGameNanos;
+        this.disqualifyAfter = disqualifyAfter;
+        this.logger = logger;
+
+        long smallest = Math.min(perCallNanos > 0 ? perCallNanos : Long.MAX_VALUE, perGameNanos > 0 ? perGameNanos : Long.MAX_VALUE);
+        this.tickNanos = Math.max(MIN_TICK, Math.min(MAX_TICK, smallest / 8));
+
+        violations = new AtomicIntegerArray(playerClassNames.length);
+        disqualified = new AtomicIntegerArray(playerClassNames.length);
+    }
+
+    public void start() {
+        running = true;
+        thread = new Thread(this::watch, "decision-watchdog");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void close() {
+        running = false;
+        if (thread != null) LockSupport.unpark(thread);
+    }
+
+    // A slot for the calling thread, which must be the one that plays the games
+    public Slot newSlot(EngineMetrics metrics) {
+        Slot slot = new Slot(Thread.currentThread(), metrics);
+        slots.add(slot);
+        return slot;
+    }
+
+    public void removeSlot(Slot slot) {
+        slots.remove(slot);
+    }
+
+    public boolean isDisqualified(int player) {
+        return disqualified.get(player) != 0;
+    }
+
+    public int getViolations(int player) {
+        return violations.get(player);
+    }
+
+    // Lines for the results log
+    public List<String> report() {
+        List<String> lines = new ArrayList<>();
+        for (int j = 0; j < playerClassNames.length; j++) {
+            if (violations.get(j) == 0) continue;
+            lines.add("Player #" + (j + 1) + " (" + playerClassNames[j] + ") went over its time budget " + violations.get(j) + " times" + (isDisqualified(j) ? " and was disqualified" : ""));
+        }
+        if (lines.isEmpty()) lines.add("No player went over its time budget.");
+        return lines;
+    }
+
+    private void violation(int player) {
+        int count = violations.incrementAndGet(player);
+        if (disqualifyAfter > 0 && count >= disqualifyAfter && disqualified.compareAndSet(player, 0, 1)) {
+            logger.log("Player #" + (player + 1) + " (" + playerClassNames[player] + ") is disqualified after going over its time budget " + count + " times, it gets the default action from now on");
+        }
+    }
+
+    private void watch() {
+        long lastTick = System.nanoTime();
+        while (running) {
+            LockSupport.parkNanos(tickNanos);
+            long now = System.nanoTime();
+            for (Slot slot : slots) {
+                slot.check(now, now - lastTick);
+            }
+            lastTick = now;
+        }
+    }
+
+    // One shard's side of the watchdog. The game calls mayDecide, begin, end (stopped if the
+    // thread got stopped) and accept around every decision; check runs on the watchdog thread.
+    public class Slot {
+        // call is (number of the call << 2) | OVERRUN | BUSY, or STOPPING
+        private static final long BUSY = 1;
+        private static final long OVERRUN = 2;
+        private static final long STOPPING = -1;
+
+        private final Thread thread;
+        private final EngineMetrics metrics;
+        private final AtomicLong call = new AtomicLong();
+        private long calls;
+        // Written before the call is published, so the watchdog sees them with it
+        private int player;
+        private int method;
+        private boolean overran;
+        private boolean failed;
+
+        // Time billed to each seat, only written by the watchdog
+        private final AtomicLongArray spent = new AtomicLongArray(playerClassNames.length);
+        private final long[] spentAtGameStart = new long[playerClassNames.length];
+        private final boolean[] outOfTime = new boolean[playerClassNames.length];
+
+        // Watchdog bookkeeping
+        private long watchedCall;
+        private long watchedSince;
+        private long overrunAt;
+
+        private Slot(Thread thread, EngineMetrics metrics) {
+            this.thread = thread;
+            this.metrics = metrics;
+        }
+
+        void newGame() {
+            for (int j = 0; j < spentAtGameStart.length; j++) {
+                spentAtGameStart[j] = spent.get(j);
+                outOfTime[j] = false;
+            }
+        }
+
+        // False if the player is disqualified or has used up its time for this game
+        boolean mayDecide(int player) {
+            if (disqualified.get(player) != 0 || outOfTime[player]) return false;
+            if (perGameNanos > 0 && spent.get(player) - spentAtGameStart[player] > perGameNanos) {
+                outOfTime[player] = true;
+                countViolation(player);
+                return false;
+            }
+            return true;
+        }
+
+        void begin(int player, int method) {
+            this.player = player;
+            this.method = method;
+            calls++;
+            call.setRelease(calls << 2 | BUSY);
+        }
+
+        void end() {
+            long busy = calls << 2 | BUSY;
+            while (!call.compareAndSet(busy, calls << 2)) {
+                if (call.compareAndSet(busy | OVERRUN, calls << 2)) {
+                    overran = true;
+                    return;
+                }
+                // STOPPING: the watchdog is about to stop this thread, wait for it to happen here
+                Thread.onSpinWait();
+            }
+        }
+
+        // The player threw, end() still has to be called
+        void threw(RuntimeException e) {
+            failed = true;
+            if (violations.get(player) == 0) {
+                logger.log("Player #" + (player + 1) + " (" + playerClassNames[player] + ") threw " + e + " in " + METHODS[method] + ", using the default action");
+            }
+        }
+
+        // The watchdog stopped the thread, instead of end()
+        void stopped() {
+            failed = true;
+            call.set(calls << 2);
+        }
+
+        // True if the decision that just ended can be used, otherwise it counts as a violation
+        boolean accept() {
+            if (!overran && !failed) return true;
+            // The interrupt is meant for the player, don't let it leak into the engine
+            Thread.interrupted();
+            overran = false;
+            failed = false;
+            countViolation(player);
+            return false;
+        }
+
+        private void countViolation(int player) {
+            if (metrics != null) metrics.countOverrun(player);
+            violation(player);
+        }
+
+        private void check(long now, long tick) {
+            long value = call.getAcquire();
+            if ((value & BUSY) == 0 || value == STOPPING) return;
+            int p = player;
+            spent.set(p, spent.get(p) + tick);
+
+            long id = value & ~OVERRUN;
+            if (id != watchedCall) {
+                watchedCall = id;
+                watchedSince = now;
+            }
+
+            boolean overBudget = (perCallNanos > 0 && now - watchedSince > perCallNanos)
+                    || (perGameNanos > 0 && spent.get(p) - spentAtGameStart[p] > perGameNanos);
+            if ((value & OVERRUN) == 0) {
+                if (overBudget && call.compareAndSet(value, value | OVERRUN)) {
+                    overrunAt = now;
+                    thread.interrupt();
+                }
+            } else if (now - overrunAt > STOP_AFTER && canStop) {
+                stop(p, value);
+            }
+        }
+
+        @SuppressWarnings({"deprecation", "removal"})
+        private void stop(int p, long value) {
+            if (!call.compareAndSet(value, STOPPING)) return;
+            try {
+                thread.stop();
+                logger.log("Player #" + (p + 1) + " (" + playerClassNames[p] + ") was stuck in " + METHODS[method] + ", stopped it");
+            } catch (UnsupportedOperationException | SecurityException e) {
+                // Newer JVMs can't stop threads, the run waits for the player after all
+                canStop = false;
+                call.set(value);
+                logger.log("Player #" + (p + 1) + " (" + playerClassNames[p] + ") is stuck in " + METHODS[method] + " and this JVM can't stop it");
+            }
+        }
+    }
+}
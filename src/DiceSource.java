@@ -0,0 +1,24 @@
+// Where a Game gets its random numbers from. Each worker owns its own source and reseeds it at
+// the start of every game, so a game only depends on its seed and never on other threads.
+public interface DiceSource {
+    void reseed(long seed);
+
+    // Uniform in [0, bound)
+    int nextInt(int bound);
+
+    default int rollDie() {
+        return nextInt(6) + 1;
+    }
+
+    // Rolls every die whose reroll flag is set, or all of them when reroll is null
+    default void roll(int[] dice, boolean[] reroll) {
+        for (int i = 0; i < dice.length; i++) {
+            if (reroll == null || reroll[i]) dice[i] = rollDie();
+        }
+    }
+
+    // Seed of game number `game` (0 based) in a run started with `masterSeed`
+    static long seedForGame(long masterSeed, long game) {
+        return XoshiroDice.mix64(masterSeed + (game + 1) * 0x9E3779B97F4A7C15L);
+    }
+}
@@ -0,0 +1,150 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// How long every seat's strategy takes to decide, plus counters for the hot paths of the game.
+// Every shard records into its own instance without locking and GameEngine adds them up when
+// asked, so recording costs a couple of increments and two System.nanoTime() calls per decision.
+public class EngineMetrics {
+    private final LatencyHistogram[] rerollDice;
+    private final LatencyHistogram[] leaveTokyo;
+    private final long[] turns;
+    private final long[] rerolls;
+    private final long[] extraTurns;
+    private final long[] tokyoEntries;
+    private final long[] overruns;
+    private long tokyoSwaps;
+    private long games;
+
+    public EngineMetrics(int numOfPlayers) {
+        rerollDice = new LatencyHistogram[numOfPlayers];
+        leaveTokyo = new LatencyHistogram[numOfPlayers];
+        for (int j = 0; j < numOfPlayers; j++) {
+            rerollDice[j] = new LatencyHistogram();
+            leaveTokyo[j] = new LatencyHistogram();
+        }
+        turns = new long[numOfPlayers];
+        rerolls = new long[numOfPlayers];
+        extraTurns = new long[numOfPlayers];
+        tokyoEntries = new long[numOfPlayers];
+        overruns = new long[numOfPlayers];
+    }
+
+    // Recording, only called by the shard that owns this instance
+    void recordRerollDice(int player, long nanos) {
+        rerollDice[player].record(nanos);
+    }
+
+    void recordLeaveTokyo(int player, long nanos) {
+        leaveTokyo[player].record(nanos);
+    }
+
+    void countTurn(int player) {
+        turns[player]++;
+    }
+
+    void countReroll(int player) {
+        rerolls[player]++;
+    }
+
+    void countExtraTurn(int player) {
+        extraTurns[player]++;
+    }
+
+    // `previous` is who was in Tokyo before `player` went in, -1 if nobody was
+    void countTokyoEntry(int player, int previous) {
+        tokyoEntries[player]++;
+        if (previous >= 0) tokyoSwaps++;
+    }
+
+    // A decision over its time budget or thrown away, or a game the player ran out of time in
+    void countOverrun(int player) {
+        overruns[player]++;
+    }
+
+    void countGame() {
+        games++;
+    }
+
+    public void add(EngineMetrics other) {
+        for (int j = 0; j < turns.length; j++) {
+            rerollDice[j].add(other.rerollDice[j]);
+            leaveTokyo[j].add(other.leaveTokyo[j]);
+            turns[j] += other.turns[j];
+            rerolls[j] += other.rerolls[j];
+            extraTurns[j] += other.extraTurns[j];
+            tokyoEntries[j] += other.tokyoEntries[j];
+            overruns[j] += other.overruns[j];
+        }
+        tokyoSwaps += other.tokyoSwaps;
+        games += other.games;
+    }
+
+    // Getters
+    public int getNumOfPlayers() {
+        return turns.length;
+    }
+
+    public LatencyHistogram getRerollDice(int player) {
+        return rerollDice[player];
+    }
+
+    public LatencyHistogram getLeaveTokyo(int player) {
+        return leaveTokyo[player];
+    }
+
+    public long getTurns(int player) {
+        return turns[player];
+    }
+
+    public long getRerolls(int player) {
+        return rerolls[player];
+    }
+
+    public long getExtraTurns(int player) {
+        return extraTurns[player];
+    }
+
+    public long getTokyoEntries(int player) {
+        return tokyoEntries[player];
+    }
+
+    public long getOverruns(int player) {
+        return overruns[player];
+    }
+
+    public long getTokyoSwaps() {
+        return tokyoSwaps;
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    // Lines for the results log
+    public List<String> report(String[] playerClassNames) {
+        List<String> lines = new ArrayList<>();
+        long decisionNanos = 0;
+        for (int j = 0; j < turns.length; j++) {
+            decisionNanos += rerollDice[j].getTotalNanos() + leaveTokyo[j].getTotalNanos();
+        }
+
+        lines.add("Metrics over " + games + " games (" + tokyoSwaps + " Tokyo swaps):");
+        for (int j = 0; j < turns.length; j++) {
+            long nanos = rerollDice[j].getTotalNanos() + leaveTokyo[j].getTotalNanos();
+            lines.add(String.format(Locale.ROOT, "Player #%d (%s): %.1f ms deciding (%.1f%% of all decision time)",
+                    j + 1, playerClassNames[j], nanos / 1e6, decisionNanos == 0 ? 0 : 100.0 * nanos / decisionNanos));
+            lines.add("    rerollDice " + latency(rerollDice[j]));
+            lines.add("    leaveTokyo " + latency(leaveTokyo[j]));
+            lines.add("    " + turns[j] + " turns, " + rerolls[j] + " rerolls, " + extraTurns[j] + " extra turns, " + tokyoEntries[j] + " times into Tokyo"
+                    + (overruns[j] > 0 ? ", " + overruns[j] + " times over the time budget" : ""));
+        }
+        return lines;
+    }
+
+    private static String latency(LatencyHistogram histogram) {
+        return String.format(Locale.ROOT, "%d calls, mean %.0f ns, p50 %d ns, p99 %d ns, p99.9 %d ns, max %d ns",
+                histogram.getCount(), histogram.getMean(), histogram.getValueAtPercentile(50),
+                histogram.getValueAtPercentile(99), histogram.getValueAtPercentile(99.9), histogram.getMax());
+    }
+}
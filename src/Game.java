@@ -0,0 +1,753 @@
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+import players.*;
+
+// Everything one game needs while it is being played. Each worker thread owns its own Game,
+// so nothing in here is shared between threads.
+public class Game {
+    // Default action for a player that is out of time: keep all dice
+    private static final boolean[] KEEP_ALL_DICE = new boolean[6];
+
+    // Which decision a player is being asked for, so a fork knows how to carry on from there
+    private static final int NONE = 0;
+    private static final int REROLL = 1;
+    private static final int LEAVE_AT_START = 2;
+    private static final int LEAVE_WHEN_HIT = 3;
+
+    private State state = new State();
+    private DiceSource dice;
+    private Player[] players;
+    private String[] playerClassNames;
+    // How the engine creates each seat's player, forks create theirs the same way. Null takes
+    // the PlayerRegistry's player of the class name.
+    private Supplier<Player>[] playerFactories;
+    private boolean[] deadPlayers;
+
+    private int playersLeft = 0;
+    private int turnsInTokyo = 0;
+    private int numHavePlayed = 0;
+
+    // Where in the turn the current decision is: whether this is the extra turn's roll, and when
+    // asked after a hit, who hit and the dice that get scored (see DiceCounts)
+    private int decision = NONE;
+    private boolean extraRoll;
+    private int hitBy;
+    private int hitCounts;
+
+    // Binary event journal, null when the run isn't journaled
+    private JournalWriter.Buffer journal;
+    // Decision latencies and counters, null when the run doesn't collect them
+    private EngineMetrics metrics;
+    // Game lengths, wins, damage and so on, null when the run doesn't collect them
+    private GameStats stats;
+    // Time budgets for the players' decisions, null when there are none
+    private DecisionWatchdog.Slot watchdog;
+
+    // SETTINGS
+    int outputting;
+    int pausing;
+
+    public Game(Player[] players, String[] playerClassNames, DiceSource dice, int outputting, int pausing) {
+        this.players = players;
+        this.dice = dice;
+        this.playerClassNames = playerClassNames;
+        this.deadPlayers = new boolean[players.length];
+
+        this.outputting = outputting;
+        this.pausing = pausing;
+        state.setGame(this);
+    }
+
+    // Resets the board and plays one full game, returns the index of the winner.
+    // The same seed always plays out the same game.
+    public int play(int round, long seed, List<String> guiUpdateBuffer) {
+        if (journal != null) journal.startGame(round);
+        newGame(seed);
+
+        while (!isOver()) {
+            playTurn(guiUpdateBuffer);
+        }
+
+        int winner = finishGame(round, guiUpdateBuffer);
+        if (journal != null) {
+            record(GameEvents.WIN, winner, playersLeft == 1 ? 1 : 0, 0);
+            journal.endGame();
+        }
+        if (metrics != null) metrics.countGame();
+        if (stats != null) stats.countGame(winner, playersLeft == 1, state.getPlayerHealth(winner), state.getCurrentTurn());
+        return winner;
+    }
+
+    public void setJournal(JournalWriter.Buffer journal) {
+        this.journal = journal;
+    }
+
+    // Forks get their players from these, so players with their own settings (see
+    // GameEngine.setPlayerFactory) are played out with those settings too
+    void setPlayerFactories(Supplier<Player>[] playerFactories) {
+        this.playerFactories = playerFactories;
+    }
+
+    public void setMetrics(EngineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public void setStats(GameStats stats) {
+        this.stats = stats;
+    }
+
+    public void setWatchdog(DecisionWatchdog.Slot watchdog) {
+        this.watchdog = watchdog;
+    }
+
+    // Resets the board for a new game played with the given seed
+    void newGame(long seed) {
+        dice.reseed(seed);
+
+        // Default health and fame
+        state.reset(players.length, 10, 0);
+        Arrays.fill(deadPlayers, false);
+        playersLeft = players.length;
+        turnsInTokyo = 0;
+        numHavePlayed = 0;
+
+        for (int h = 0; h < players.length; h++) {
+            // Players keep their own copy of health/fame, so reset those too
+            players[h].setHealth(10);
+            players[h].setFame(0);
+        }
+
+        if (watchdog != null) watchdog.newGame();
+
+        state.setCurrentPlayer(dice.nextInt(players.length));
+        record(GameEvents.GAME_START, state.getCurrentPlayer(), players.length, 0);
+    }
+
+    State getState() {
+        return state;
+    }
+
+    // A fork of this game for strategies to play forward, with its own copies of the players.
+    // It starts out at the current position. Forks don't log, journal, time or pause anything.
+    GameFork newFork() {
+        Player[] forkPlayers = new Player[players.length];
+        for (int j = 0; j < players.length; j++) {
+            Supplier<Player> factory = playerFactories != null ? playerFactories[j] : PlayerRegistry.get().getFactory(playerClassNames[j]);
+            forkPlayers[j] = factory.get();
+            forkPlayers[j].setId(j);
+        }
+        Game fork = new Game(forkPlayers, playerClassNames, new BulkDice(), GameIntervals.OVERALL, GameIntervals.OVERALL);
+        fork.setPlayerFactories(playerFactories);
+        fork.copyFrom(this);
+        return new Fork(fork);
+    }
+
+    // Takes over the position of `other` including where in the turn it is, without allocating
+    private void copyFrom(Game other) {
+        state.copyFrom(other.state);
+        System.arraycopy(other.deadPlayers, 0, deadPlayers, 0, deadPlayers.length);
+        playersLeft = other.playersLeft;
+        turnsInTokyo = other.turnsInTokyo;
+        numHavePlayed = other.numHavePlayed;
+        decision = other.decision;
+        extraRoll = other.extraRoll;
+        hitBy = other.hitBy;
+        hitCounts = other.hitCounts;
+        for (int j = 0; j < players.length; j++) {
+            players[j].setHealth(other.players[j].getHealth());
+            players[j].setFame(other.state.getPlayerFame(j));
+        }
+    }
+
+    // Carries on from a rerollDice decision with `reroll` as the answer, up to the end of the turn
+    private void finishTurn(boolean[] reroll, List<String> guiUpdateBuffer) {
+        if (decision != REROLL) throw new IllegalStateException("The game isn't waiting for rerollDice");
+        decision = NONE;
+
+        boolean anyRerolled = false;
+        for (boolean r : reroll) {
+            anyRerolled |= r;
+        }
+        if (anyRerolled) {
+            state.rollDice(dice, reroll);
+            rollDice(state.getRerollsLeft() - 1);
+        }
+        state.setRerollsLeft(0);
+
+        if (extraRoll) scoreExtraRoll(guiUpdateBuffer);
+        else scoreFirstRoll(guiUpdateBuffer);
+        endTurn();
+    }
+
+    // Carries on from a leaveTokyo decision with `answer` as what the player returned
+    private void finishTurn(boolean answer, List<String> guiUpdateBuffer) {
+        if (decision == LEAVE_AT_START) {
+            decision = NONE;
+            if (playRolls(answer, guiUpdateBuffer)) endTurn();
+        } else if (decision == LEAVE_WHEN_HIT) {
+            decision = NONE;
+            answerWhenHit(hitBy, state.getCurrentPlayer(), answer);
+            boolean extraTurn = scoreFame(hitCounts);
+            if (!extraRoll) playExtraTurn(extraTurn, guiUpdateBuffer);
+            endTurn();
+        } else {
+            throw new IllegalStateException("The game isn't waiting for leaveTokyo");
+        }
+    }
+
+    boolean isOver() {
+        return playersLeft <= 1 || state.anyPlayerHasFame(20);
+    }
+
+    private void record(byte type, int player, int value, int extra) {
+        if (journal != null) journal.record(state.getCurrentTurn(), type, player, value, extra);
+    }
+
+    // Journals and counts who left and who entered Tokyo if it changed hands since `previous`
+    private void recordTokyoChange(int previous) {
+        if (previous == state.getInTokyo()) return;
+        if (metrics != null && state.getInTokyo() >= 0) metrics.countTokyoEntry(state.getInTokyo(), previous);
+        if (journal == null) return;
+        if (previous >= 0) record(GameEvents.LEAVE_TOKYO, previous, 0, 0);
+        if (state.getInTokyo() >= 0) record(GameEvents.ENTER_TOKYO, state.getInTokyo(), 0, 0);
+    }
+
+    private void setFameHelper(int player, int deltaFame) {
+        if (player == -1) return;
+        int oldFame = state.getPlayerFame(player);
+        if (state.getPlayerFame(player) + deltaFame <= 20) {
+            state.addPlayerFame(player, deltaFame);
+
+            players[player].setFame(state.getPlayerFame(player) + deltaFame);
+        } else {
+            state.setPlayerFame(player, 20);
+
+            players[player].setFame(20);
+        }
+        if (journal != null && state.getPlayerFame(player) != oldFame) record(GameEvents.FAME, player, state.getPlayerFame(player) - oldFame, 0);
+    }
+
+    private void setHealthHelper(int player, int deltaHealth) {
+        setHealthHelper(player, deltaHealth, 1);
+    }
+
+    // Same as calling setHealthHelper(player, deltaHealth) `times` times, players end up with the
+    // same copy of their health too
+    private void setHealthHelper(int player, int deltaHealth, int times) {
+        if (player == -1 || times == 0) return;
+        int oldHealth = state.getPlayerHealth(player);
+        if (state.getPlayerHealth(player) + deltaHealth * times > 12) {
+            // Healths tries to go above 12
+            state.setPlayerHealth(player, 12);
+
+            players[player].setHealth(12);
+        } else if (state.getPlayerHealth(player) + deltaHealth * times < 0) {
+            // Health tries to go below 0
+            state.setPlayerHealth(player, 0);
+
+            players[player].setHealth(0);
+        } else {
+            state.addPlayerHealth(player, deltaHealth * times);
+
+            players[player].setHealth(state.getPlayerHealth(player) + deltaHealth);
+        }
+
+        if (stats != null && state.getPlayerHealth(player) < oldHealth) stats.countDamage(state.getCurrentPlayer(), player, oldHealth - state.getPlayerHealth(player));
+        if (journal != null) {
+            int newHealth = state.getPlayerHealth(player);
+            if (newHealth < oldHealth) record(GameEvents.DAMAGE, player, oldHealth - newHealth, state.getCurrentPlayer());
+            if (newHealth > oldHealth) record(GameEvents.HEAL, player, newHealth - oldHealth, 0);
+            if (newHealth == 0 && oldHealth > 0) record(GameEvents.DEATH, player, 0, 0);
+        }
+    }
+
+    private void updateTokyoStarter() {
+        int previous = state.getInTokyo();
+        state.setInTokyo(state.getCurrentPlayer());
+        recordTokyoChange(previous);
+        setFameHelper(state.getCurrentPlayer(), 1);
+    }
+
+    private void pause(int a) {
+        try {
+            Thread.sleep(a);
+        }
+        catch (Exception e) {}
+    }
+
+    // Plays the current player's turn and moves on to the next player
+    void playTurn(List<String> guiUpdateBuffer) {
+        // For each player...
+        record(GameEvents.TURN_START, state.getCurrentPlayer(), state.getPlayerHealth(state.getCurrentPlayer()), state.getPlayerFame(state.getCurrentPlayer()));
+        if (state.getPlayerHealth(state.getCurrentPlayer()) == 0) {
+            // Player is dead
+            if (pausing == GameIntervals.PER_TURN) pause(500);
+            if (outputting == GameIntervals.PER_TURN) {
+                guiUpdateBuffer.add("———————New Turn———————\n \nPlayer #" + (state.getCurrentPlayer() + 1) + ": Dead");
+            }
+
+            // Increasing the health of the person who killed it
+            if (deadPlayers[state.getCurrentPlayer()] == false) {
+                if (state.getCurrentPlayer() == 0) {
+                    for (int i = players.length - 1; i >= 0; i--) {
+                        if (!deadPlayers[i]) {
+                            setFameHelper(players.length - 1, 1);
+                        }
+                    }
+                } else {
+                    setFameHelper(state.getCurrentPlayer() - 1, 1);
+                }
+            }
+            deadPlayers[state.getCurrentPlayer()] = true;
+
+            state.setCurrentPlayer(state.getCurrentPlayer() + 1);
+
+            if (state.getCurrentPlayer() >= players.length) state.setCurrentPlayer(0);
+            numHavePlayed++;
+
+            playersLeft = state.countAlive();
+
+            return;
+        }
+
+        if (state.getPlayerHealth(state.getCurrentPlayer()) > 0) {
+            if (metrics != null) metrics.countTurn(state.getCurrentPlayer());
+            if (stats != null) stats.countTurn(state.getCurrentPlayer());
+
+            // Checking to see if survived a full round
+            if (state.getInTokyo() == state.getCurrentPlayer() && turnsInTokyo != 0) {
+                setFameHelper(state.getInTokyo(), 2);
+            }
+
+            // Only prints the data and roll if the player is still alive
+            if (pausing == GameIntervals.PER_TURN) pause(500);
+            if (outputting == GameIntervals.PER_TURN) guiUpdateBuffer.add("———————New Turn———————\n \nPlayer #" + (state.getCurrentPlayer() + 1) + ": \nHealth: " + state.getPlayerHealth(state.getCurrentPlayer()) + "\nFame: " + state.getPlayerFame(state.getCurrentPlayer()));
+
+            if (numHavePlayed != 0 && outputting == GameIntervals.PER_TURN) guiUpdateBuffer.add("Player #" + (state.getInTokyo() + 1) + " is in Tokyo");
+
+            // Checking to see if player wants to leave tokyo
+            boolean leavesTokyo = false;
+            if (state.getCurrentPlayer() == state.getInTokyo()) {
+                decision = LEAVE_AT_START;
+                leavesTokyo = askLeaveTokyo(state.getCurrentPlayer(), false);
+            }
+            if (!playRolls(leavesTokyo, guiUpdateBuffer)) return;
+        }
+
+        endTurn();
+    }
+
+    // The rest of an alive player's turn once it answered whether it leaves Tokyo. False if the
+    // turn ended early because the game is over.
+    private boolean playRolls(boolean leavesTokyo, List<String> guiUpdateBuffer) {
+        if (leavesTokyo) {
+            // Player wants to leave tokyo
+            // Changing who is in tokyo
+            if (playersLeft == 1) return false;
+            int previous = state.getInTokyo();
+            boolean temp_valid = false;
+            while (!temp_valid) {
+                state.setInTokyo(state.getInTokyo() - 1);
+                if (state.getInTokyo() == -1) {
+                    for (int i = players.length - 1; i >= 0; i--) {
+                        if (!deadPlayers[i]) {
+                            state.setInTokyo(players.length - 1);
+                        }
+                    }
+                }
+                if (state.getPlayerHealth(state.getInTokyo()) != 0) temp_valid = true;
+            }
+            recordTokyoChange(previous);
+
+            // increasing the fame of the new person in tokyo for scaring the person in tokyo
+            setFameHelper(state.getInTokyo(), 1);
+
+            turnsInTokyo = 0;
+        }
+
+        // Player survived a full round in tokyo
+
+        // Keep track of dice
+        extraRoll = false;
+        state.rollDice(dice, null);
+        record(GameEvents.ROLL, state.getCurrentPlayer(), state.packDice(), 0);
+
+        rollDice(2);
+        scoreFirstRoll(guiUpdateBuffer);
+        return true;
+    }
+
+    // Scores the first roll once the rerolls are done, then plays the extra turn if it earned one
+    private void scoreFirstRoll(List<String> guiUpdateBuffer) {
+        // If player in tokyo dies then current player goes in
+        if (state.getInTokyo() > -1 && state.getPlayerHealth(state.getInTokyo()) == 0) {
+            int previous = state.getInTokyo();
+            state.setInTokyo(state.getCurrentPlayer());
+            recordTokyoChange(previous);
+            setFameHelper(state.getCurrentPlayer(), 1);
+        }
+
+        if (outputting == GameIntervals.PER_TURN) {
+            guiUpdateBuffer.add("Final dice roll: " + state.diceToString() + "\n");
+        }
+
+        // Increasing the current turn
+        state.setCurrentTurn(state.getCurrentTurn() + 1);
+
+        boolean extraTurn = processDice();
+        playExtraTurn(extraTurn, guiUpdateBuffer);
+    }
+
+    private void playExtraTurn(boolean extraTurn, List<String> guiUpdateBuffer) {
+        if (extraTurn) {
+            if (metrics != null) metrics.countExtraTurn(state.getCurrentPlayer());
+            if (stats != null) stats.countExtraTurn(state.getCurrentPlayer());
+            // Increasing the current turn
+            // state.setCurrentTurn(state.getCurrentTurn() + 1);
+
+            extraRoll = true;
+            state.rollDice(dice, null);
+            record(GameEvents.ROLL, state.getCurrentPlayer(), state.packDice(), 1);
+
+            rollDice(2);
+            scoreExtraRoll(guiUpdateBuffer);
+        }
+    }
+
+    private void scoreExtraRoll(List<String> guiUpdateBuffer) {
+        processDice();
+        if (outputting == GameIntervals.PER_TURN) {
+            guiUpdateBuffer.add("Second final dice roll: " + state.diceToString() + "\n");
+        }
+    }
+
+    // Hands the turn to the next player
+    private void endTurn() {
+        if (numHavePlayed == 0) updateTokyoStarter();
+        if (stats != null) stats.countTurnEnd(state.getInTokyo());
+        state.setCurrentPlayer(state.getCurrentPlayer() + 1);
+        if (state.getCurrentPlayer() >= players.length) state.setCurrentPlayer(0);
+        numHavePlayed++;
+        turnsInTokyo++;
+    }
+
+    // Works out who won once the game is over
+    private int finishGame(int round, List<String> guiUpdateBuffer) {
+        if (playersLeft == 1) {
+            for (int j = 0; j < state.getNumOfPlayers(); j++) {
+                if (state.getPlayerHealth(j) != 0) {
+                    if (outputting <= GameIntervals.PER_GAME) guiUpdateBuffer.add((outputting == GameIntervals.PER_TURN ? "\n" : "") + "Round #" + round + ": Player #" + (j + 1) + " (" + playerClassNames[j] + ") has won!");
+                    return j;
+                }
+            }
+        } else {
+            for (int index = 0; index < state.getNumOfPlayers(); index++) {
+                if (state.getPlayerFame(index) == 20) {
+                    if (outputting <= GameIntervals.PER_GAME) guiUpdateBuffer.add((outputting == GameIntervals.PER_TURN ? "\n" : "") + "Round #" + round + ": Player #" + (index + 1) + " (" + playerClassNames[index] + ") has won!");
+                    return index;
+                }
+            }
+        }
+
+        return -1;
+    }
+
+    // playTurn() abstractions
+    // Handle dice
+    void rollDice() {
+        rollDice(2);
+    }
+
+    // User has two chances to re-roll, `rerolls` is how many are left
+    private void rollDice(int rerolls) {
+        for (int rerollsLeft = rerolls; rerollsLeft >= 1; rerollsLeft--) {
+            state.setRerollsLeft(rerollsLeft);
+            decision = REROLL;
+            boolean[] userChoice = askRerollDice(state.getCurrentPlayer());
+
+            boolean anyRerolled = false;
+            for (boolean reroll : userChoice) {
+                anyRerolled |= reroll;
+            }
+
+            if (!anyRerolled) {
+                break;
+            }
+
+            // if the user wants to reroll the dice then reroll
+            state.rollDice(dice, userChoice);
+            if (metrics != null) metrics.countReroll(state.getCurrentPlayer());
+
+            if (journal != null) {
+                int mask = 0;
+                for (int index = 0; index < userChoice.length; index++) {
+                    if (userChoice[index]) mask |= 1 << index;
+                }
+                record(GameEvents.REROLL, state.getCurrentPlayer(), mask, state.packDice());
+            }
+        }
+        state.setRerollsLeft(0);
+    }
+
+    private boolean[] askRerollDice(int player) {
+        if (watchdog != null) return askRerollDiceGuarded(player);
+        if (metrics == null) return players[player].rerollDice(state);
+
+        long start = System.nanoTime();
+        boolean[] choice = players[player].rerollDice(state);
+        metrics.recordRerollDice(player, System.nanoTime() - start);
+        return choice;
+    }
+
+    // The answer leaveTokyo gives to stay means the opposite depending on where it is asked,
+    // `stay` is that answer so a player who is out of time stays in Tokyo
+    private boolean askLeaveTokyo(int player, boolean stay) {
+        if (watchdog != null) return askLeaveTokyoGuarded(player, stay);
+        if (metrics == null) return players[player].leaveTokyo(state);
+
+        long start = System.nanoTime();
+        boolean choice = players[player].leaveTokyo(state);
+        metrics.recordLeaveTokyo(player, System.nanoTime() - start);
+        return choice;
+    }
+
+    // Same as above under the watchdog: the default action is used when the player is out of
+    // time, throws, or takes longer than its budget
+    private boolean[] askRerollDiceGuarded(int player) {
+        if (!watchdog.mayDecide(player)) return KEEP_ALL_DICE;
+
+        long start = metrics != null ? System.nanoTime() : 0;
+        boolean[] choice = null;
+        try {
+            watchdog.begin(player, DecisionWatchdog.REROLL_DICE);
+            try {
+                choice = players[player].rerollDice(state);
+            } catch (RuntimeException e) {
+                watchdog.threw(e);
+            }
+            watchdog.end();
+        } catch (ThreadDeath e) {
+            watchdog.stopped();
+        }
+        if (metrics != null) metrics.recordRerollDice(player, System.nanoTime() - start);
+
+        return watchdog.accept() && choice != null ? choice : KEEP_ALL_DICE;
+    }
+
+    private boolean askLeaveTokyoGuarded(int player, boolean stay) {
+        if (!watchdog.mayDecide(player)) return stay;
+
+        long start = metrics != null ? System.nanoTime() : 0;
+        boolean choice = stay;
+        try {
+            watchdog.begin(player, DecisionWatchdog.LEAVE_TOKYO);
+            try {
+                choice = players[player].leaveTokyo(state);
+            } catch (RuntimeException e) {
+                watchdog.threw(e);
+            }
+            watchdog.end();
+        } catch (ThreadDeath e) {
+            watchdog.stopped();
+        }
+        if (metrics != null) metrics.recordLeaveTokyo(player, System.nanoTime() - start);
+
+        return watchdog.accept() ? choice : stay;
+    }
+
+    // Scores the dice from their counts (see DiceCounts). Only where the first 6 is matters: it
+    // hits whoever is in Tokyo, and if they survive they're asked whether to leave and no dice
+    // after that 6 count.
+    boolean processDice() {
+        int counts = state.getDiceCounts();
+        int current = state.getCurrentPlayer();
+        int inTokyo = state.getInTokyo();
+        int sixes = DiceCounts.count(counts, 6);
+
+        if (current == inTokyo) {
+            // Current player is in Tokyo: Every 6 attacks all other monsters, 5s don't heal
+            if (sixes > 0) {
+                for (int j = 0; j < players.length; j++) {
+                    if (j == inTokyo) continue;
+                    setHealthHelper(j, -1, sixes);
+
+                    // If a player dies: Recalculate how many players are left
+                    if (state.getPlayerHealth(j) == 0) {
+                        playersLeft = state.countAlive();
+                    }
+                }
+            }
+            return scoreFame(counts);
+        }
+
+        if (inTokyo >= 0 && sixes > 0 && state.getPlayerHealth(inTokyo) > 1) {
+            // Attack the monster in Tokyo, which survives the first 6
+            int scored = state.getDiceCountsBeforeSix();
+            setHealthHelper(current, 1, DiceCounts.count(scored, 5));
+            setHealthHelper(inTokyo, -1);
+
+            state.setCurrentPlayer(inTokyo);
+            // Prompt currentPlayer if they would like to leave Tokyo
+            decision = LEAVE_WHEN_HIT;
+            hitBy = current;
+            hitCounts = scored;
+            boolean playerAchoosesToStay = askLeaveTokyo(inTokyo, true);
+            answerWhenHit(current, inTokyo, playerAchoosesToStay);
+            return scoreFame(scored);
+        }
+
+        // Every die counts: 5s heal, and 6s hit the monster in Tokyo if there is one, which dies
+        // on the first of them if it's hit at all
+        setHealthHelper(current, 1, DiceCounts.count(counts, 5));
+        if (inTokyo >= 0) setHealthHelper(inTokyo, -1, sixes);
+        return scoreFame(counts);
+    }
+
+    private void answerWhenHit(int attacker, int defender, boolean playerAchoosesToStay) {
+        if (playerAchoosesToStay) {
+            // Player A chooses to stay, so switch back
+            state.setCurrentPlayer(attacker);
+        } else {
+            // Player A chooses to leave, so update inTokyo and currentPlayer
+            state.setInTokyo(attacker);
+            recordTokyoChange(defender);
+            state.setCurrentPlayer(defender);
+        }
+    }
+
+    // Fame for the dice processDice got to, returns whether they earned an extra turn
+    private boolean scoreFame(int counts) {
+        int score = DiceCounts.score(counts);
+        // increases the fame if rolled 1, 2, 3
+        //fame doesn't go into negatives anymore
+        if ((score & ~DiceCounts.EXTRA_TURN) != 0) {
+            for (int face = 1; face <= 3; face++) {
+                int fame = DiceCounts.fame(score, face);
+                if (fame > 0) setFameHelper(state.getCurrentPlayer(), fame);
+            }
+        }
+
+        // three or more 4s earn an extra turn
+        return DiceCounts.extraTurn(score);
+    }
+
+    static class Fork implements GameFork {
+        private final Game game;
+        private final List<String> noLog = Collections.emptyList();
+
+        private Fork(Game game) {
+            this.game = game;
+        }
+
+        @Override
+        public void copyFrom(GameView view) {
+            if (!(view instanceof State) || ((State) view).getGame() == null) {
+                throw new IllegalArgumentException("Only views handed out by the engine can be forked");
+            }
+            game.copyFrom(((State) view).getGame());
+        }
+
+        @Override
+        public void reseed(long seed) {
+            game.dice.reseed(seed);
+        }
+
+        @Override
+        public Player getPlayer(int seat) {
+            return game.players[seat];
+        }
+
+        @Override
+        public void setPlayer(int seat, Player player) {
+            player.setId(seat);
+            game.players[seat] = player;
+        }
+
+        @Override
+        public void finishTurn(boolean[] reroll) {
+            game.finishTurn(reroll, noLog);
+        }
+
+        @Override
+        public void finishTurn(boolean leaveTokyo) {
+            game.finishTurn(leaveTokyo, noLog);
+        }
+
+        @Override
+        public boolean isOver() {
+            return game.isOver();
+        }
+
+        @Override
+        public int playOut() {
+            while (!game.isOver()) {
+                game.playTurn(noLog);
+            }
+            return getWinner();
+        }
+
+        @Override
+        public int getWinner() {
+            return game.isOver() ? game.finishGame(0, noLog) : -1;
+        }
+
+        @Override
+        public GameFork newFork() {
+            return game.newFork();
+        }
+
+        // GameView
+        @Override
+        public int getCurrentTurn() {
+            return game.state.getCurrentTurn();
+        }
+
+        @Override
+        public int getCurrentPlayer() {
+            return game.state.getCurrentPlayer();
+        }
+
+        @Override
+        public int getInTokyo() {
+            return game.state.getInTokyo();
+        }
+
+        @Override
+        public int getNumOfPlayers() {
+            return game.state.getNumOfPlayers();
+        }
+
+        @Override
+        public int getNumOfDice() {
+            return game.state.getNumOfDice();
+        }
+
+        @Override
+        public int getRerollsLeft() {
+            return game.state.getRerollsLeft();
+        }
+
+        @Override
+        public int getDie(int index) {
+            return game.state.getDie(index);
+        }
+
+        @Override
+        public int getDiceCounts() {
+            return game.state.getDiceCounts();
+        }
+
+        @Override
+        public int getPlayerHealth(int player) {
+            return game.state.getPlayerHealth(player);
+        }
+
+        @Override
+        public int getPlayerFame(int player) {
+            return game.state.getPlayerFame(player);
+        }
+    }
+}
@@ -1,495 +1,609 @@
-import javax.swing.*;
-import java.lang.reflect.Constructor;
-import java.util.Arrays;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 import players.*;
 
 public class GameEngine {
-    private State state = new State();
-    private Player[] players;
+    // How many shards each worker thread gets, so a slow shard doesn't leave the other cores idle
+    private static final int SHARDS_PER_THREAD = 4;
+    // Most games a shard plays before it tells the logger about its progress
+    private static final int PROGRESS_STEP = 1024;
+    // Games played before a stopping rule is checked the first time, then after twice as many
+    private static final int FIRST_CHECK = 1000;
+
+    private int numOfPlayers;
     private String[] playerClassNames;
-    private boolean[] deadPlayers;
-
-    private int playersLeft = 0;
-    private int turnsInTokyo = 0;
-    private SwingGUI.Results logger;
+    private Supplier<Player>[] playerFactories;
+    private GameLogger logger;
+    private int numOfGames;
+    private int firstGame = 0;
+    private long masterSeed = XoshiroDice.mix64(System.nanoTime());
+    private boolean seeded;
+    private final AtomicLong gamesDone = new AtomicLong();
+    // Set once a shard failed, the others stop at their next game
+    private volatile boolean failed;
+    private JournalWriter journal;
+    private boolean collectMetrics;
+    // One EngineMetrics per shard of the current run, each only written by its own shard
+    private final List<EngineMetrics> shardMetrics = new CopyOnWriteArrayList<>();
+    private boolean collectStats = true;
+    private final List<GameStats> shardStats = new CopyOnWriteArrayList<>();
+    private long perCallNanos;
+    private long perGameNanos;
+    private int disqualifyAfter;
+    private DecisionWatchdog watchdog;
+    private StoppingRule stoppingRule;
+    private int gamesPlayed;
+    private ResultCache resultCache;
+    // Games of the last run that came out of the result cache, and their stats
+    private int cachedGames;
+    private GameStats cachedStats;
+    private Path checkpointFile;
+    private long checkpointMillis;
+    // The checkpoint of the current run, null when it doesn't keep one
+    private Checkpoint checkpoint;
+    private int resumedGames;
+    private Coordinator coordinator;
+    // Whether a seat plays a player that isn't just its class, see setPlayerFactory
+    private boolean customPlayers;
 
     // SETTINGS
     int outputting;
     int pausing;
+    int threads;
+
+    public GameEngine(int numOfPlayers, String[] players, int numOfGames, int outputtingInterval, int pausing, GameLogger logger) {
+        this(numOfPlayers, players, numOfGames, outputtingInterval, pausing, 1, logger);
+    }
 
-    public GameEngine(int numOfPlayers, String[] players, int numOfGames, int outputtingInterval, int pausing, SwingGUI.Results logger) {
+    // Throws IllegalArgumentException if one of the players isn't in the PlayerRegistry
+    @SuppressWarnings("unchecked")
+    public GameEngine(int numOfPlayers, String[] players, int numOfGames, int outputtingInterval, int pausing, int threads, GameLogger logger) {
         this.logger = logger;
+        this.numOfGames = numOfGames;
 
-        this.players = new Player[numOfPlayers];
+        this.numOfPlayers = numOfPlayers;
         this.playerClassNames = players;
-        deadPlayers = new boolean[numOfPlayers];
+
+        // Look every player up front so a bad name fails here instead of halfway through a run
+        PlayerRegistry registry = PlayerRegistry.get();
+        playerFactories = (Supplier<Player>[]) new Supplier<?>[numOfPlayers];
+        for (int j = 0; j < numOfPlayers; j++) {
+            playerFactories[j] = registry.getFactory(players[j]);
+        }
 
         outputting = outputtingInterval;
         this.pausing = pausing + 1;
 
-        // Start game logic thread
-        GameLogicThread gameLogicThread = new GameLogicThread(numOfGames);
-        gameLogicThread.start();
+        // Pausing only makes sense when games are played one after another
+        this.threads = this.pausing <= GameIntervals.PER_GAME ? 1 : Math.max(1, threads);
     }
 
-    private class GameLogicThread extends Thread {
-        private int numOfGames;
+    // Creates the player of `seat` with `factory` instead of from the PlayerRegistry, e.g. to give
+    // it other settings (see Tunable). The result cache, checkpoints and workers only know players
+    // by class, so runs with such a seat don't use them.
+    public void setPlayerFactory(int seat, Supplier<Player> factory) {
+        playerFactories[seat] = factory;
+        customPlayers = true;
+    }
 
-        public GameLogicThread(int numOfGames) {
-            this.numOfGames = numOfGames;
-        }
+    // Every game's seed is derived from this, so the same seed replays the same run
+    public void setSeed(long masterSeed) {
+        this.masterSeed = masterSeed;
+        seeded = true;
+    }
 
-        @Override
-        public void run() {
-            int[] results = runXGames(numOfGames);
+    public long getSeed() {
+        return masterSeed;
+    }
 
-            // After the game logic is done, update the GUI
-            publishResults(results);
-        }
+    // Skips ahead so the run starts at game number firstGame + 1 (e.g. to replay a single game)
+    public void setFirstGame(int firstGame) {
+        this.firstGame = firstGame;
+    }
 
-        public void publishGameLog(List<String> gameLog) {
-            // System.out.println(Arrays.toString(gameLog.toArray()));
-            SwingUtilities.invokeLater(() -> {
-                for (String log : gameLog) {
-                    logger.log(log);
-                }
-            });
-        }
-
-        // Run all games and return results
-        private int[] runXGames(int numOfGames) {
-            int[] results = new int[players.length];
-            Arrays.fill(results, 0);
-
-            for (int j = 0; j < players.length; j++) {
-                try {
-                    Class<?> temp = Class.forName("players." + playerClassNames[j]);
-                    Constructor<?> constructor = temp.getConstructor();
-                    Player player = (Player) constructor.newInstance();
-                    player.setId(j); // Ensure the player has a valid ID
-                    players[j] = player;
-                } catch (Exception e) {
-                    // If there's an issue, assign a fallback player
-                    players[j] = new PlayerNaive(); // Assuming PlayerNaive is a fallback implementation
-                    players[j].setId(j);
-                }
-            }
+    // Writes every game event to a binary journal (see JournalWriter); the engine closes it
+    // once the run is over
+    public void setJournal(JournalWriter journal) {
+        this.journal = journal;
+    }
 
-            for (int i = 0; i < numOfGames; i++) {
-                state.setInTokyo(-1);
-                deadPlayers = new boolean[players.length];
-                playersLeft = players.length;
+    // Times every rerollDice/leaveTokyo call and counts turns, rerolls, extra turns and Tokyo
+    // swaps. The totals are added to the results and can be read with getMetrics() at any time.
+    public void setCollectMetrics(boolean collectMetrics) {
+        this.collectMetrics = collectMetrics;
+    }
 
-                int[] tempH = new int[players.length];
-                int[] tempF = new int[players.length];
-                for (int h = 0; h < players.length; h++) {
-                    tempH[h] = 10;  // Default health
-                    tempF[h] = 0;   // Default fame
-                }
+    // The metrics of the run so far, null when they aren't being collected. Shards that are
+    // still playing are read without stopping them, so their last few games may be missing.
+    public EngineMetrics getMetrics() {
+        if (!collectMetrics) return null;
+        EngineMetrics total = new EngineMetrics(numOfPlayers);
+        for (EngineMetrics metrics : shardMetrics) {
+            total.add(metrics);
+        }
+        return total;
+    }
 
-                state.setPlayerHealths(tempH);
-                state.setPlayerFames(tempF);
+    // Counts game lengths, how games are won, time in Tokyo, damage, health at the win and extra
+    // turns (see GameStats) and adds a table of them to the results. On unless turned off.
+    public void setCollectStats(boolean collectStats) {
+        this.collectStats = collectStats;
+    }
 
-                state.setCurrentPlayer((int) Math.floor(Math.random() * players.length));
-                int winner = runGame(i + 1, this);
-                results[winner]++;
-                if (pausing <= GameIntervals.PER_GAME) pause(1000);
-            }
+    // The stats of the run so far, null when they aren't being collected. Read like getMetrics().
+    public GameStats getStats() {
+        if (!collectStats) return null;
+        return totalStats();
+    }
 
-            return results;
+    private GameStats totalStats() {
+        GameStats total = new GameStats(numOfPlayers);
+        if (cachedStats != null) total.add(cachedStats);
+        for (GameStats stats : shardStats) {
+            total.add(stats);
         }
+        return total;
+    }
 
-        private void publishResults(int[] results) {
-            // Notify the UIWorker with the results
-            SwingUtilities.invokeLater(() -> {
-                logger.log("\n");
-                for (int j = 0; j < results.length; j++) {
-                    logger.log("Player #" + (j + 1) + " (" + playerClassNames[j] + ") won " + (((double) results[j]) / numOfGames * 100.0) + "% of the time (" + results[j] + "/" + numOfGames + " games).");
-                }
-            });
-        }
-    }
-
-//    private int[] runXGames(int numOfGames) {
-//        int[] results = new int[players.length];
-//
-//        for (int ijk = 0; ijk < results.length; ijk++) {
-//            results[ijk] = 0;
-//        }
-//
-//        for (int j = 0; j < players.length; j++) {
-//            Class<?> temp;
-//            Player player;
-//            try {
-//                temp = Class.forName("players." + playerClassNames[j]);
-//
-//                if (Player.class.isAssignableFrom(temp)) {
-//                    Constructor<?> constructor;
-//
-//                    try {
-//                        constructor = temp.getConstructor();
-//                        playerConstructors[j] = constructor;
-//                    } catch (NoSuchMethodException e) {
-//                        System.out.println("No suitable constructor for player: " + playerClassNames[j]);
-//                        playerConstructors[j] = null;
-//                        players[j] = new PlayerNaive();
-//                        players[j].setId(j);
-//                        continue;
-//                    }
-//
-//                    try {
-//                        player = (Player) constructor.newInstance();
-//                    } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
-//                        System.out.println("Error: " + e.getMessage());
-//                        playerConstructors[j] = null;
-//                        players[j] = new PlayerNaive();
-//                        players[j].setId(j);
-//                        continue;
-//                    }
-//
-//                    players[j] = player;
-//                    players[j].setId(j);
-//                }
-//            } catch (ClassNotFoundException e) {
-//                playerConstructors[j] = null;
-//                players[j] = new PlayerNaive();
-//                players[j].setId(j);
-//            }
-//        }
-//
-//        for (int i = 0; i < numOfGames; i++) {
-//            state.setInTokyo(-1);
-//
-//            deadPlayers = new boolean[players.length];
-//
-//            playersLeft = players.length;
-//
-//            int[] tempH = new int[players.length];
-//            int[] tempF = new int[players.length];
-//            for (int h = 0; h < players.length; h++) {
-//                tempH[h] = 10;
-//                tempF[h] = 0;
-//            }
-//
-//            state.setPlayerHealths(tempH);
-//            state.setPlayerFames(tempF);
-//
-//            state.setCurrentPlayer((int) Math.floor(Math.random() * players.length));
-//            int res = runGame(i + 1);
-//            results[res]++;
-//
-//            // if (outputting <= GameIntervals.PER_GAME) logger.log("\n");
-//            if (pausing <= GameIntervals.PER_GAME) pause(1000);
-//        }
-//
-//
-//        return results;
-//    }
-
-    private void setFameHelper(int player, int deltaFame) {
-        if (player == -1) return;
-        if (state.getPlayerFames()[player] + deltaFame <= 20) {
-            int[] playerFamesTemp = state.getPlayerFames();
-            playerFamesTemp[player] += deltaFame;
-            state.setPlayerFames(playerFamesTemp);
-
-            players[player].setFame(playerFamesTemp[player] + deltaFame);
-        } else {
-            int[] playerFamesTemp = state.getPlayerFames();
-            playerFamesTemp[player] = 20;
-            state.setPlayerFames(playerFamesTemp);
+    // Limits how long a player may take for one decision and in total per game (0 = no limit).
+    // A player over budget gets the default action (keep all dice / stay in Tokyo) instead, and
+    // after disqualifyAfter violations it gets it for the rest of the run (0 = never).
+    // Which decisions are over budget depends on timing, so a run with budgets may not replay.
+    public void setDecisionBudget(long perCallMillis, long perGameMillis, int disqualifyAfter) {
+        this.perCallNanos = perCallMillis * 1_000_000L;
+        this.perGameNanos = perGameMillis * 1_000_000L;
+        this.disqualifyAfter = disqualifyAfter;
+    }
 
-            players[player].setFame(20);
-        }
+    // Stops the run early once the rule is met, the number of games becomes the most it plays
+    public void setStoppingRule(StoppingRule stoppingRule) {
+        this.stoppingRule = stoppingRule;
     }
 
-    private void setHealthHelper(int player, int deltaHealth) {
-        if (player == -1) return;
-        if (state.getPlayerHealths()[player] + deltaHealth > 12) {
-            // Healths tries to go above 12
-            int[] playerHealthsTemp = state.getPlayerHealths();
-            playerHealthsTemp[player] = 12;
-            state.setPlayerHealths(playerHealthsTemp);
+    // Games the last run played, fewer than asked for when a stopping rule ended it early
+    public int getGamesPlayed() {
+        return gamesPlayed;
+    }
 
-            players[player].setHealth(12);
-        } else if (state.getPlayerHealths()[player] + deltaHealth < 0) {
-            // Health tries to go below 0
-            int[] playerHealthsTemp = state.getPlayerHealths();
-            playerHealthsTemp[player] = 0;
-            state.setPlayerHealths(playerHealthsTemp);
+    // Takes the games it can from the cache and stores the run there afterwards (see
+    // ResultCache). Only used for runs with a seed that play from the first game and only report
+    // the overall results, without a journal, metrics, budgets or a stopping rule.
+    public void setResultCache(ResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
 
-            players[player].setHealth(0);
-        } else {
-            int[] playerHealthsTemp = state.getPlayerHealths();
-            playerHealthsTemp[player] += deltaHealth;
-            state.setPlayerHealths(playerHealthsTemp);
+    // Games of the last run that were taken from the result cache
+    public int getCachedGames() {
+        return cachedGames;
+    }
 
-            players[player].setHealth(playerHealthsTemp[player] + deltaHealth);
-        }
+    // Saves where the run has got to in `file` every `everyMillis` (see Checkpoint) and, if the
+    // file holds the same run, goes on from there. The file is deleted once the run is over.
+    // Not used for runs with a journal or a stopping rule. Metrics and decision budgets only
+    // cover the games played since the resume.
+    public void setCheckpoint(Path file, long everyMillis) {
+        this.checkpointFile = file;
+        this.checkpointMillis = everyMillis;
+    }
 
+    // Games of the last run that were taken from a checkpoint
+    public int getResumedGames() {
+        return resumedGames;
     }
 
-    private void updateTokyoStarter() {
-        state.setInTokyo(state.getCurrentPlayer());
-        setFameHelper(state.getCurrentPlayer(), 1);
+    // Plays the games on the worker processes of `coordinator` (see Coordinator) instead of on
+    // this JVM's threads. Only used for runs that play without pausing and only report the
+    // overall results, without a journal, metrics, budgets or a checkpoint; the rest is played here.
+    public void setCoordinator(Coordinator coordinator) {
+        this.coordinator = coordinator;
     }
 
-    private void pause(int a) {
+    private boolean usesWorkers() {
+        return coordinator != null && !customPlayers && journal == null && !collectMetrics && perCallNanos == 0 && perGameNanos == 0
+                && outputting == GameIntervals.OVERALL && pausing > GameIntervals.PER_GAME;
+    }
+
+    private boolean usesResultCache() {
+        return resultCache != null && !customPlayers && seeded && firstGame == 0 && stoppingRule == null && journal == null && !collectMetrics
+                && perCallNanos == 0 && perGameNanos == 0 && outputting == GameIntervals.OVERALL && pausing > GameIntervals.PER_GAME;
+    }
+
+    // Plays all games on a background thread (used by the GUI)
+    public void start() {
+        // Start game logic thread
+        GameLogicThread gameLogicThread = new GameLogicThread();
+        gameLogicThread.start();
+    }
+
+    // Plays all games on the calling thread and returns the number of wins per player
+    public int[] run() {
+        gamesDone.set(0);
+        failed = false;
+        shardMetrics.clear();
+        shardStats.clear();
+        cachedGames = 0;
+        cachedStats = null;
+        resumedGames = 0;
+        checkpoint = null;
+        if (checkpointFile != null && !customPlayers && stoppingRule == null && journal == null && !usesWorkers()) {
+            try {
+                checkpoint = new Checkpoint(checkpointFile, checkpointMillis, ResultCache.codeKey(playerClassNames), numOfPlayers, collectsStats());
+            } catch (IOException | RuntimeException e) {
+                logger.log("Could not keep a checkpoint in " + checkpointFile + ": " + e.getMessage());
+            }
+        }
+        watchdog = null;
+        if (perCallNanos > 0 || perGameNanos > 0) {
+            watchdog = new DecisionWatchdog(playerClassNames, perCallNanos, perGameNanos, disqualifyAfter, logger);
+            watchdog.start();
+        }
+
+        int[] results;
         try {
-            Thread.sleep(a);
+            if (stoppingRule != null) {
+                results = runUntilSettled();
+            } else if (usesResultCache()) {
+                results = runCached();
+            } else {
+                results = runGames(firstGame, numOfGames);
+                gamesPlayed = numOfGames;
+            }
+        } finally {
+            if (watchdog != null) watchdog.close();
+            // Also when a game failed, so the games before it are in the file
+            closeJournal();
         }
-        catch (Exception e) {}
+
+        // After the game logic is done, report the results
+        publishResults(results);
+        deleteCheckpoint();
+        return results;
     }
 
-    private boolean contains(int num, int[] playerFames) {
-        for (int i = 0; i<playerFames.length; i++) {
-            if (playerFames[i] == num) {
-                return true;
+    private class GameLogicThread extends Thread {
+        @Override
+        public void run() {
+            try {
+                GameEngine.this.run();
+            } catch (RuntimeException e) {
+                // Nobody else would hear about it on this thread, the GUI would wait forever
+                Throwable cause = e;
+                while (cause.getCause() != null) {
+                    cause = cause.getCause();
+                }
+                logger.log("The simulation failed: " + cause.getMessage());
+                e.printStackTrace();
+            } finally {
+                // Also after a failure, and after its line so that's still shown
+                logger.finished();
             }
         }
-        return false;
     }
 
-    private int runGame(int round, GameLogicThread worker) {
-        // Start of game
-        int numHavePlayed = 0;
-        java.util.List<String> guiUpdateBuffer = new java.util.ArrayList<String>();
+    private int[] runGames(int firstGame, int numOfGames) {
+        if (usesWorkers()) return runOnWorkers(firstGame, numOfGames);
+        if (checkpoint != null) return runFromCheckpoint(firstGame, numOfGames);
+        return threads == 1 ? runXGames(firstGame, firstGame + numOfGames, null) : runXGamesParallel(firstGame, numOfGames);
+    }
 
-        while (playersLeft > 1 && !contains(20, state.getPlayerFames())) {
-            // For each player...
-            if (state.getPlayerHealths()[state.getCurrentPlayer()] == 0) {
-                // Player is dead
-                if (pausing == GameIntervals.PER_TURN) pause(500);
-                if (outputting == GameIntervals.PER_TURN) {
-                    guiUpdateBuffer.add("———————New Turn———————\n \nPlayer #" + (state.getCurrentPlayer() + 1) + ": Dead");
-                }
+    private int[] runOnWorkers(int firstGame, int numOfGames) {
+        GameStats stats = null;
+        if (collectsStats()) {
+            stats = new GameStats(numOfPlayers);
+            shardStats.add(stats);
+        }
+        try {
+            return coordinator.run(playerClassNames, masterSeed, firstGame, numOfGames, stats,
+                    games -> logger.progress(gamesDone.addAndGet(games), this.numOfGames));
+        } catch (IOException e) {
+            throw new RuntimeException("Simulation on the workers failed: " + e.getMessage(), e);
+        }
+    }
 
-                // Increasing the health of the person who killed it
-                if (deadPlayers[state.getCurrentPlayer()] == false) {
-                    if (state.getCurrentPlayer() == 0) {
-                        for (int i = players.length - 1; i >= 0; i--) {
-                            if (!deadPlayers[i]) {
-                                setFameHelper(players.length - 1, 1);
-                            }
-                        }
-                    } else {
-                        setFameHelper(state.getCurrentPlayer() - 1, 1);
-                    }
-                }
-                deadPlayers[state.getCurrentPlayer()] = true;
+    // Plays the shards of the checkpoint if it holds these games, or else new ones, and saves
+    // where they got to as they go
+    private int[] runFromCheckpoint(int firstGame, int numOfGames) {
+        List<Checkpoint.Shard> shards = null;
+        try {
+            shards = checkpoint.resume(masterSeed, seeded, firstGame, numOfGames);
+        } catch (IOException e) {
+            logger.log("Not resuming from the checkpoint in " + checkpoint.getFile() + ": " + e.getMessage());
+        }
+        if (shards != null) {
+            masterSeed = checkpoint.getSeed();
+            resumedGames = checkpoint.getGamesDone();
+            logger.log("Resuming from the checkpoint in " + checkpoint.getFile() + ", " + resumedGames + " of " + numOfGames + " games were played.");
+        } else {
+            shards = checkpoint.start(firstGame, numOfGames, masterSeed, shardRanges(firstGame, numOfGames));
+        }
 
-                state.setCurrentPlayer(state.getCurrentPlayer() + 1);
+        List<Supplier<int[]>> tasks = new ArrayList<>();
+        for (Checkpoint.Shard shard : shards) {
+            tasks.add(() -> runXGames(shard.from, shard.to, shard));
+        }
+        return runShards(tasks);
+    }
 
-                if (state.getCurrentPlayer() >= players.length) state.setCurrentPlayer(0);
-                numHavePlayed++;
+    private void saveProgress(Checkpoint.Shard shard, int next, int[] results, GameStats stats) {
+        shard.update(next, results, stats);
+        if (!checkpoint.isDue()) return;
+        try {
+            checkpoint.write();
+        } catch (IOException | RuntimeException e) {
+            logger.log("Could not write the checkpoint to " + checkpoint.getFile() + ": " + e.getMessage());
+        }
+    }
 
-                playersLeft = state.getPlayerHealths().length;
-                for (int ijkl = 0; ijkl < state.getPlayerHealths().length; ijkl++) {
-                    if (state.getPlayerHealths()[ijkl] == 0) playersLeft--;
-                }
+    private void deleteCheckpoint() {
+        if (checkpoint == null) return;
+        try {
+            checkpoint.delete();
+        } catch (IOException e) {
+            logger.log("Could not delete the checkpoint " + checkpoint.getFile() + ": " + e.getMessage());
+        }
+    }
 
-                continue;
+    // Plays only the games after the longest cached run of this matchup and seed, then caches
+    // the whole run. Problems with the cache are logged and the games played.
+    private int[] runCached() {
+        String key = null;
+        ResultCache.Result cached = null;
+        try {
+            key = resultCache.key(playerClassNames, masterSeed);
+            cached = resultCache.find(key, numOfPlayers, numOfGames);
+        } catch (IOException | RuntimeException e) {
+            logger.log("Could not read the result cache in " + resultCache.getDir() + ": " + e.getMessage());
+        }
+
+        int[] results;
+        if (cached != null) {
+            cachedGames = cached.games;
+            cachedStats = cached.stats;
+            gamesDone.set(cachedGames);
+            results = cachedGames < numOfGames ? runGames(cachedGames, numOfGames - cachedGames) : new int[numOfPlayers];
+            for (int j = 0; j < results.length; j++) {
+                results[j] += cached.wins[j];
             }
+        } else {
+            results = runGames(0, numOfGames);
+        }
+        gamesPlayed = numOfGames;
 
-            if (state.getPlayerHealths()[state.getCurrentPlayer()] > 0) {
+        if (key != null && cachedGames < numOfGames) {
+            try {
+                resultCache.store(key, new ResultCache.Result(numOfGames, results.clone(), totalStats()));
+            } catch (IOException | RuntimeException e) {
+                logger.log("Could not write to the result cache in " + resultCache.getDir() + ": " + e.getMessage());
+            }
+        }
+        return results;
+    }
 
-                // Checking to see if survived a full round
-                if (state.getInTokyo() == state.getCurrentPlayer() && turnsInTokyo != 0) {
-                    setFameHelper(state.getInTokyo(), 2);
-                }
+    // Plays the games in batches that double in size and stops after the first batch that
+    // meets the stopping rule. Every batch is a fixed range of games, so the same seed stops
+    // at the same game on any number of threads.
+    private int[] runUntilSettled() {
+        int[] results = new int[numOfPlayers];
+        int played = 0;
+        int next = Math.min(numOfGames, FIRST_CHECK);
+        while (true) {
+            int[] batch = runGames(firstGame + played, next - played);
+            for (int j = 0; j < results.length; j++) {
+                results[j] += batch[j];
+            }
+            played = next;
+            if (played == numOfGames || stoppingRule.isMet(results, played)) break;
+            next = (int) Math.min(numOfGames, 2L * played);
+        }
+        gamesPlayed = played;
+        return results;
+    }
 
-                // Only prints the data and roll if the player is still alive
-                if (pausing == GameIntervals.PER_TURN) pause(500);
-                if (outputting == GameIntervals.PER_TURN) guiUpdateBuffer.add("———————New Turn———————\n \nPlayer #" + (state.getCurrentPlayer() + 1) + ": \nHealth: " + state.getPlayerHealths()[state.getCurrentPlayer()] + "\nFame: " + state.getPlayerFames()[state.getCurrentPlayer()]);
-
-                if (numHavePlayed != 0 && outputting == GameIntervals.PER_TURN) guiUpdateBuffer.add("Player #" + (state.getInTokyo() + 1) + " is in Tokyo");
-
-                // Checking to see if player wants to leave tokyo
-                if (state.getCurrentPlayer() == state.getInTokyo() && players[state.getCurrentPlayer()].leaveTokyo(state.getCurrentTurn(), state.getCurrentPlayer(), state.getInTokyo(), state.getDice(), state.getPlayerHealths(), state.getPlayerFames())) {
-                    // Player wants to leave tokyo
-                    // Changing who is in tokyo
-                    if (playersLeft == 1) break;
-                    boolean temp_valid = false;
-                    while (!temp_valid) {
-                        state.setInTokyo(state.getInTokyo() - 1);
-                        if (state.getInTokyo() == -1) {
-                            for (int i = players.length - 1; i >= 0; i--) {
-                                if (!deadPlayers[i]) {
-                                    state.setInTokyo(players.length - 1);
-                                }
-                            }
-                        }
-                        if (state.getPlayerHealths()[state.getInTokyo()] != 0) temp_valid = true;
-                    }
-
-                    // increasing the fame of the new person in tokyo for scaring the person in tokyo
-                    setFameHelper(state.getInTokyo(), 1);
-
-                    turnsInTokyo = 0;
-                }
+    // Run games [from, to) on the calling thread with its own players and return the results.
+    // With a checkpoint shard it starts where the shard got to and keeps it up to date.
+    private int[] runXGames(int from, int to, Checkpoint.Shard shard) {
+        int[] results = shard != null ? shard.getWins() : new int[numOfPlayers];
+        int start = shard != null ? shard.getNext() : from;
+
+        Game game = new Game(createPlayers(), playerClassNames, new BulkDice(), outputting, pausing);
+        game.setPlayerFactories(playerFactories);
+        JournalWriter.Buffer journalBuffer = journal != null ? journal.newBuffer() : null;
+        game.setJournal(journalBuffer);
+        EngineMetrics metrics = null;
+        if (collectMetrics) {
+            metrics = new EngineMetrics(numOfPlayers);
+            shardMetrics.add(metrics);
+            game.setMetrics(metrics);
+        }
+        GameStats stats = null;
+        if (collectsStats()) {
+            stats = new GameStats(numOfPlayers);
+            if (shard != null) shard.addStatsTo(stats);
+            shardStats.add(stats);
+            game.setStats(stats);
+        }
+        DecisionWatchdog.Slot slot = watchdog != null ? watchdog.newSlot(metrics) : null;
+        game.setWatchdog(slot);
 
-                // Player survived a full round in tokyo
+        // With "Overall" reporting the game never writes a line, so it gets a sink that can't be
+        // written to and nothing is allocated or handed to the logger per game
+        List<String> guiUpdateBuffer = outputting <= GameIntervals.PER_GAME ? new ArrayList<String>() : Collections.emptyList();
 
-                // Keep track of dice
-                int[] userDiceRoll = new int[6];
-                for (int i = 0; i < userDiceRoll.length; i++) {
-                    userDiceRoll[i] = ((int) Math.floor(Math.random() * 6)) + 1;
-                }
+        // Progress is reported every few games instead of after each one
+        int progressStep = pausing <= GameIntervals.PER_GAME ? 1 : Math.max(1, Math.min(PROGRESS_STEP, numOfGames / 1000));
+        int unreported = 0;
+        if (start > from) logger.progress(gamesDone.addAndGet(start - from), numOfGames);
 
-                userDiceRoll = rollDice(userDiceRoll);
+        try {
+            for (int i = start; i < to && !failed; i++) {
+                int winner = game.play(i + 1, DiceSource.seedForGame(masterSeed, i), guiUpdateBuffer);
+                results[winner]++;
 
-                // If player in tokyo dies then current player goes in
-                if (state.getInTokyo() > -1 && state.getPlayerHealths()[state.getInTokyo()] == 0) {
-                    state.setInTokyo(state.getCurrentPlayer());
-                    setFameHelper(state.getCurrentPlayer(), 1);
+                if (!guiUpdateBuffer.isEmpty()) {
+                    logger.log(new ArrayList<>(guiUpdateBuffer));
+                    guiUpdateBuffer.clear();
                 }
-
-                if (outputting == GameIntervals.PER_TURN) {
-                    guiUpdateBuffer.add("Final dice roll: " + Arrays.toString(userDiceRoll) + "\n");
+                if (++unreported == progressStep) {
+                    logger.progress(gamesDone.addAndGet(unreported), numOfGames);
+                    unreported = 0;
+                    if (shard != null) saveProgress(shard, i + 1, results, stats);
                 }
 
-                // Increasing the current turn
-                state.setCurrentTurn(state.getCurrentTurn() + 1);
+                if (pausing <= GameIntervals.PER_GAME) pause(1000);
+            }
+            if (unreported > 0) logger.progress(gamesDone.addAndGet(unreported), numOfGames);
+            if (shard != null && !failed) saveProgress(shard, to, results, stats);
+        } catch (RuntimeException | Error e) {
+            failed = true;
+            throw e;
+        } finally {
+            // Records of a game that failed halfway go too, the journal shows where it stopped
+            if (journalBuffer != null) journalBuffer.flush();
+            if (slot != null) watchdog.removeSlot(slot);
+        }
 
-                boolean extraTurn = processDice(userDiceRoll);
+        return results;
+    }
 
-                if (extraTurn) {
-                    // Increasing the current turn
-                    // state.setCurrentTurn(state.getCurrentTurn() + 1);
+    // Split the games into shards, play them on a worker pool and add up the wins
+    private int[] runXGamesParallel(int firstGame, int numOfGames) {
+        List<Supplier<int[]>> tasks = new ArrayList<>();
+        for (int[] range : shardRanges(firstGame, numOfGames)) {
+            tasks.add(() -> runXGames(range[0], range[1], null));
+        }
+        return runShards(tasks);
+    }
 
-                    for (int i = 0; i < userDiceRoll.length; i++) {
-                        userDiceRoll[i] = ((int) Math.floor(Math.random() * 6)) + 1;
-                    }
+    // {from, to} of every shard, a single one when there's one thread
+    private List<int[]> shardRanges(int firstGame, int numOfGames) {
+        int numOfShards = threads == 1 ? 1 : Math.min(numOfGames, threads * SHARDS_PER_THREAD);
+        List<int[]> ranges = new ArrayList<>();
+        for (int s = 0; s < numOfShards; s++) {
+            int from = firstGame + (int) ((long) numOfGames * s / numOfShards);
+            int to = firstGame + (int) ((long) numOfGames * (s + 1) / numOfShards);
+            ranges.add(new int[] {from, to});
+        }
+        return ranges;
+    }
 
-                    userDiceRoll = rollDice(userDiceRoll);
-                    processDice(userDiceRoll);
-                    if (outputting == GameIntervals.PER_TURN) {
-                        guiUpdateBuffer.add("Second final dice roll: " + Arrays.toString(userDiceRoll) + "\n");
-                    }
-                }
+    // Plays the shards on a worker pool, or one after another with one thread, and adds up the wins
+    private int[] runShards(List<Supplier<int[]>> tasks) {
+        int[] results = new int[numOfPlayers];
+        if (threads == 1) {
+            for (Supplier<int[]> task : tasks) {
+                add(results, task.get());
             }
-
-            if (numHavePlayed == 0) updateTokyoStarter();
-            state.setCurrentPlayer(state.getCurrentPlayer() + 1);
-            if (state.getCurrentPlayer() >= players.length) state.setCurrentPlayer(0);
-            numHavePlayed++;
-            turnsInTokyo++;
+            return results;
         }
 
-        if (playersLeft == 1) {
-            for (int j = 0; j < state.getPlayerHealths().length; j++) {
-                if (state.getPlayerHealths()[j] != 0) {
-                    if (outputting <= GameIntervals.PER_GAME) guiUpdateBuffer.add((outputting == GameIntervals.PER_TURN ? "\n" : "") + "Round #" + round + ": Player #" + (j + 1) + " (" + playerClassNames[j] + ") has won!");
-                    worker.publishGameLog(guiUpdateBuffer);
-                    return j;
-                }
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<int[]>> shards = new ArrayList<>();
+            for (Supplier<int[]> task : tasks) {
+                shards.add(pool.submit(task::get));
             }
-        } else {
-            for (int index = 0; index < state.getPlayerFames().length; index++) {
-                if (state.getPlayerFames()[index] == 20) {
-                    if (outputting <= GameIntervals.PER_GAME) guiUpdateBuffer.add((outputting == GameIntervals.PER_TURN ? "\n" : "") + "Round #" + round + ": Player #" + (index + 1) + " (" + playerClassNames[index] + ") has won!");
-                    worker.publishGameLog(guiUpdateBuffer);
-                    return index;
-                }
+            for (Future<int[]> shard : shards) {
+                add(results, shard.get());
+            }
+            return results;
+        } catch (InterruptedException | ExecutionException e) {
+            failed = true;
+            throw new RuntimeException("Simulation shard failed", e);
+        } finally {
+            // The other shards stop at their next game, wait for them so none writes to the
+            // journal or the checkpoint after the run is over
+            pool.shutdownNow();
+            try {
+                pool.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
         }
-
-        return -1;
     }
 
-    // runGame() abstractions
-    // Handle dice
-    private int[] rollDice(int[] userDiceRoll) {
-        // User has two chances to re-roll
-        state.setDice(userDiceRoll);
-        for (int diceRolls = 1; diceRolls <= 2; diceRolls++) {
-            boolean[] userChoice = players[state.getCurrentPlayer()].rerollDice(state.getCurrentTurn(), state.getCurrentPlayer(), state.getInTokyo(), state.getDice(), state.getPlayerHealths(), state.getPlayerFames());
-
-            if (Arrays.equals(userChoice, new boolean[]{false, false, false, false, false, false})) {
-                break;
-            }
+    private static void add(int[] results, int[] shardResults) {
+        for (int j = 0; j < results.length; j++) {
+            results[j] += shardResults[j];
+        }
+    }
 
-            for (int index = 0; index < userChoice.length; index++) {
-                // if the user wants to reroll the dice then reroll
-                if (userChoice[index]) {
-                    userDiceRoll[index] = ((int) Math.floor(Math.random() * 6)) + 1;
-                }
-            }
-            state.setDice(userDiceRoll);
+    // The result cache and checkpoints keep the stats too
+    private boolean collectsStats() {
+        return collectStats || usesResultCache();
+    }
 
+    private void publishResults(int[] results) {
+        // Notify the logger with the results
+        List<String> lines = new ArrayList<>();
+        lines.add("\n");
+        lines.add("Seed: " + masterSeed);
+        for (int j = 0; j < results.length; j++) {
+            lines.add("Player #" + (j + 1) + " (" + playerClassNames[j] + ") won " + (((double) results[j]) / gamesPlayed * 100.0) + "% of the time (" + results[j] + "/" + gamesPlayed + " games).");
+        }
+        if (cachedGames > 0) {
+            lines.add("Took " + cachedGames + " of the " + numOfGames + " games from the result cache.");
+        }
+        if (resumedGames > 0) {
+            lines.add("Resumed from a checkpoint after " + resumedGames + " games.");
         }
+        if (stoppingRule != null) {
+            lines.add("");
+            if (gamesPlayed < numOfGames) lines.add("Stopped early after " + gamesPlayed + " of " + numOfGames + " games.");
+            else if (!stoppingRule.isMet(results, gamesPlayed)) lines.add("Played all " + numOfGames + " games without reaching the target.");
+            lines.add(stoppingRule.describe(results, gamesPlayed, playerClassNames));
+        }
+        if (collectStats) {
+            lines.add("");
+            lines.addAll(getStats().report(playerClassNames));
+        }
+        if (collectMetrics) {
+            lines.add("");
+            lines.addAll(getMetrics().report(playerClassNames));
+        }
+        if (watchdog != null) {
+            lines.add("");
+            lines.addAll(watchdog.report());
+        }
+        logger.log(lines);
+    }
 
-        return userDiceRoll;
+    private void closeJournal() {
+        if (journal == null) return;
+        try {
+            journal.close();
+        } catch (IOException e) {
+            logger.log("Could not close the game journal: " + e.getMessage());
+        }
     }
 
-    private boolean processDice(int[] userDiceRoll) {
-        int[] numOfDice = new int[]{0, 0, 0, 0, 0, 0};
-        for (int dice : userDiceRoll) {
-            numOfDice[dice - 1] += 1;
+    // Every shard gets its own Player instances since players keep their own health/fame
+    private Player[] createPlayers() {
+        Player[] players = new Player[numOfPlayers];
 
-            if (dice == 5) {
-                if (state.getCurrentPlayer() != state.getInTokyo()) {
-                    setHealthHelper(state.getCurrentPlayer(), 1);
-                }
-            } else if (dice == 6) {
-                if (state.getInTokyo() == -1) continue;
-                if (state.getCurrentPlayer() != state.getInTokyo()) {
-                    // Current player not in Tokyo: Attack the monster in Tokyo
-                    // Death of player in Tokyo is already checked for
-                    setHealthHelper(state.getInTokyo(), -1);
-                    if (state.getInTokyo() >= 0 && state.getPlayerHealths()[state.getInTokyo()] != 0) {
-
-                        int[] abc = new int[2];
-                        abc[0] = state.getCurrentPlayer();
-                        abc[1] = state.getInTokyo();
-
-                        state.setCurrentPlayer(abc[1]);
-                        // Prompt currentPlayer if they would like to leave Tokyo
-//                        if (players[state.getInTokyo()] instanceof PlayerHuman && outputting) {
-//                            System.out.print("\n" + "Player #" + (state.getInTokyo() + 1) + ": ");
-//                        }
-                        boolean playerAchoosesToStay = players[abc[1]].leaveTokyo(state.getCurrentTurn(), state.getCurrentPlayer(), state.getInTokyo(), state.getDice(), state.getPlayerHealths(), state.getPlayerFames());
-                        if (playerAchoosesToStay) {
-                            // Player A chooses to stay, so switch back
-                            state.setCurrentPlayer(abc[0]);
-                            break;
-                        } else {
-                            // Player A chooses to leave, so update inTokyo and currentPlayer
-                            state.setInTokyo(abc[0]);
-                            state.setCurrentPlayer(abc[1]);
-                            break;
-                        }
-                    }
-
-                } else {
-                    // Current player is in Tokyo: Attack all other monsters
-                    for (int j = 0; j < players.length; j++) {
-                        if (j == state.getInTokyo()) continue;
-                        setHealthHelper(j, -1);
-
-                        // If a player dies: Recalculate how many players are left
-                        if (state.getPlayerHealths()[j] == 0) {
-                            playersLeft = state.getPlayerHealths().length;
-                            for (int ijkl = 0; ijkl < state.getPlayerHealths().length; ijkl++) {
-                                if (state.getPlayerHealths()[ijkl] == 0) playersLeft--;
-                            }
-                        }
-                    }
-                }
-            }
+        for (int j = 0; j < players.length; j++) {
+            players[j] = playerFactories[j].get();
+            players[j].setId(j); // Ensure the player has a valid ID
         }
 
-        // increases the fame if rolled 1, 2, 3
-        for (int index = 1; index <= 3; index++) {
-            if (numOfDice[index - 1] >= 3) {
-                //fame doesn't go into negatives anymore
-                setFameHelper(state.getCurrentPlayer(), index + (numOfDice[index - 1] - 3));
-            }
-        }
+        return players;
+    }
 
-        // if (numOfDice[3] >= 3) return true | else return false;
-        return numOfDice[3] >= 3;
+    private void pause(int a) {
+        try {
+            Thread.sleep(a);
+        }
+        catch (Exception e) {}
     }
-}
\ No newline at end of file
+}
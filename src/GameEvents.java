@@ -0,0 +1,48 @@
+// Event types and record layout of the binary game journal (see JournalWriter/JournalReader).
+//
+// Every record is RECORD_SIZE bytes, little endian:
+//   int   game     game number, 1 based like the "Round #" in the logs
+//   short turn     State.getCurrentTurn() when it happened
+//   byte  type     one of the constants below
+//   byte  player   who it happened to
+//   int   value    see the constants
+//   int   extra    see the constants
+public final class GameEvents {
+    public static final int MAGIC = 0x4B4F544A; // "KOTJ"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 16;
+    public static final int RECORD_SIZE = 16;
+
+    public static final byte GAME_START = 0;   // player: starting player, value: number of players
+    public static final byte TURN_START = 1;   // value: health, extra: fame
+    public static final byte ROLL = 2;         // value: dice (packDice), extra: 1 for the extra turn's roll
+    public static final byte REROLL = 3;       // value: bit i set if die i was rerolled, extra: dice afterwards
+    public static final byte DAMAGE = 4;       // value: health lost, extra: player who dealt it
+    public static final byte HEAL = 5;         // value: health gained
+    public static final byte FAME = 6;         // value: fame gained
+    public static final byte ENTER_TOKYO = 7;
+    public static final byte LEAVE_TOKYO = 8;
+    public static final byte DEATH = 9;
+    public static final byte WIN = 10;         // value: 1 if everyone else died, 0 if won on fame
+
+    private static final String[] NAMES = {"GAME_START", "TURN_START", "ROLL", "REROLL", "DAMAGE", "HEAL", "FAME", "ENTER_TOKYO", "LEAVE_TOKYO", "DEATH", "WIN"};
+
+    private GameEvents() {}
+
+    public static String name(int type) {
+        return type >= 0 && type < NAMES.length ? NAMES[type] : "UNKNOWN(" + type + ")";
+    }
+
+    // Six faces, 3 bits each, die 0 in the lowest bits
+    public static int packDice(int[] dice) {
+        int packed = 0;
+        for (int i = 0; i < dice.length; i++) {
+            packed |= dice[i] << (3 * i);
+        }
+        return packed;
+    }
+
+    public static int unpackDie(int packed, int index) {
+        return (packed >>> (3 * index)) & 7;
+    }
+}
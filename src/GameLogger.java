@@ -0,0 +1,25 @@
+import java.util.List;
+
+// Where GameEngine sends its output. The engine calls these from its own threads, so
+// implementations are responsible for getting the lines onto whatever thread owns the output.
+public interface GameLogger {
+    void log(String s);
+
+    // All lines of one game, kept together
+    default void log(List<String> lines) {
+        for (String line : lines) {
+            log(line);
+        }
+    }
+
+    // The games done so far of the run. Every thread calls it after each numOfGames / 1000 of
+    // its games (at least 1, at most 1024), after its last game and once for the games taken
+    // from a checkpoint; after every game when pausing between games. Runs on workers call it
+    // once per finished shard instead. It can come from several threads at once, so it has to
+    // be cheap and gamesDone may arrive out of order.
+    default void progress(long gamesDone, long totalGames) {}
+
+    // Called once when a run started with GameEngine.start() is over, after the final results
+    // or the error that ended it have been logged
+    default void finished() {}
+}
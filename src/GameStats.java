@@ -0,0 +1,268 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+// Why games end the way they do: how long they last, how they're won and, per seat, time in
+// Tokyo, damage dealt and taken, health at the win and extra turns. Like EngineMetrics every shard
+// counts into its own instance in plain arrays and GameEngine adds them up, so the memory used
+// doesn't grow with the number of games.
+public class GameStats {
+    // Games this long or longer share the last bucket of the length histogram
+    public static final int MAX_TURNS = 200;
+    public static final int MAX_HEALTH = 12;
+
+    private final long[] gameLengths = new long[MAX_TURNS + 1];
+    private final long[] winsByFame;
+    private final long[] winsByElimination;
+    // healthAtWin[player][health] counts the games player won with that much health left
+    private final long[][] healthAtWin;
+    private final long[] turns;
+    private final long[] turnsInTokyo;
+    private final long[] extraTurns;
+    private final long[] damageDealt;
+    private final long[] damageTaken;
+    private long totalTurns;
+    private long games;
+
+    public GameStats(int numOfPlayers) {
+        winsByFame = new long[numOfPlayers];
+        winsByElimination = new long[numOfPlayers];
+        healthAtWin = new long[numOfPlayers][MAX_HEALTH + 1];
+        turns = new long[numOfPlayers];
+        turnsInTokyo = new long[numOfPlayers];
+        extraTurns = new long[numOfPlayers];
+        damageDealt = new long[numOfPlayers];
+        damageTaken = new long[numOfPlayers];
+    }
+
+    // Recording, only called by the shard that owns this instance
+    void countTurn(int player) {
+        turns[player]++;
+    }
+
+    // Once at the end of every turn, with whoever holds Tokyo then (-1 if nobody does)
+    void countTurnEnd(int inTokyo) {
+        totalTurns++;
+        if (inTokyo >= 0) turnsInTokyo[inTokyo]++;
+    }
+
+    void countExtraTurn(int player) {
+        extraTurns[player]++;
+    }
+
+    // `attacker` is whose turn it was
+    void countDamage(int attacker, int player, int damage) {
+        damageDealt[attacker] += damage;
+        damageTaken[player] += damage;
+    }
+
+    void countGame(int winner, boolean byElimination, int health, int length) {
+        if (byElimination) winsByElimination[winner]++;
+        else winsByFame[winner]++;
+        healthAtWin[winner][Math.max(0, Math.min(MAX_HEALTH, health))]++;
+        gameLengths[Math.min(MAX_TURNS, length)]++;
+        games++;
+    }
+
+    public void add(GameStats other) {
+        for (int t = 0; t < gameLengths.length; t++) {
+            gameLengths[t] += other.gameLengths[t];
+        }
+        for (int j = 0; j < turns.length; j++) {
+            winsByFame[j] += other.winsByFame[j];
+            winsByElimination[j] += other.winsByElimination[j];
+            for (int h = 0; h <= MAX_HEALTH; h++) {
+                healthAtWin[j][h] += other.healthAtWin[j][h];
+            }
+            turns[j] += other.turns[j];
+            turnsInTokyo[j] += other.turnsInTokyo[j];
+            extraTurns[j] += other.extraTurns[j];
+            damageDealt[j] += other.damageDealt[j];
+            damageTaken[j] += other.damageTaken[j];
+        }
+        totalTurns += other.totalTurns;
+        games += other.games;
+    }
+
+    void clear() {
+        Arrays.fill(gameLengths, 0);
+        for (int j = 0; j < turns.length; j++) {
+            winsByFame[j] = 0;
+            winsByElimination[j] = 0;
+            Arrays.fill(healthAtWin[j], 0);
+            turns[j] = 0;
+            turnsInTokyo[j] = 0;
+            extraTurns[j] = 0;
+            damageDealt[j] = 0;
+            damageTaken[j] = 0;
+        }
+        totalTurns = 0;
+        games = 0;
+    }
+
+    // Binary form for ResultCache and Checkpoint, every array with its length in front
+    void write(DataOutputStream out) throws IOException {
+        writeLongs(out, gameLengths);
+        writeLongs(out, winsByFame);
+        writeLongs(out, winsByElimination);
+        for (long[] health : healthAtWin) {
+            writeLongs(out, health);
+        }
+        writeLongs(out, turns);
+        writeLongs(out, turnsInTokyo);
+        writeLongs(out, extraTurns);
+        writeLongs(out, damageDealt);
+        writeLongs(out, damageTaken);
+        out.writeLong(totalTurns);
+        out.writeLong(games);
+    }
+
+    static GameStats read(DataInputStream in, int numOfPlayers) throws IOException {
+        GameStats stats = new GameStats(numOfPlayers);
+        readLongs(in, stats.gameLengths);
+        readLongs(in, stats.winsByFame);
+        readLongs(in, stats.winsByElimination);
+        for (long[] health : stats.healthAtWin) {
+            readLongs(in, health);
+        }
+        readLongs(in, stats.turns);
+        readLongs(in, stats.turnsInTokyo);
+        readLongs(in, stats.extraTurns);
+        readLongs(in, stats.damageDealt);
+        readLongs(in, stats.damageTaken);
+        stats.totalTurns = in.readLong();
+        stats.games = in.readLong();
+        return stats;
+    }
+
+    private static void writeLongs(DataOutputStream out, long[] values) throws IOException {
+        out.writeInt(values.length);
+        for (long value : values) {
+            out.writeLong(value);
+        }
+    }
+
+    private static void readLongs(DataInputStream in, long[] values) throws IOException {
+        if (in.readInt() != values.length) throw new IOException("Stats were saved for a different table");
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readLong();
+        }
+    }
+
+    // Getters
+    public int getNumOfPlayers() {
+        return turns.length;
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    // How many games lasted `turns` turns, the last bucket holds every game of MAX_TURNS or more
+    public long getGamesOfLength(int turns) {
+        return gameLengths[turns];
+    }
+
+    public double getMeanLength() {
+        long total = 0;
+        for (int t = 0; t < gameLengths.length; t++) {
+            total += t * gameLengths[t];
+        }
+        return games == 0 ? 0 : (double) total / games;
+    }
+
+    // Shortest length that at least `percentile` percent of the games didn't go past
+    public int getLengthAtPercentile(double percentile) {
+        long needed = (long) Math.ceil(games * percentile / 100.0);
+        long seen = 0;
+        for (int t = 0; t < gameLengths.length; t++) {
+            seen += gameLengths[t];
+            if (seen >= needed && seen > 0) return t;
+        }
+        return 0;
+    }
+
+    public long getWinsByFame(int player) {
+        return winsByFame[player];
+    }
+
+    public long getWinsByElimination(int player) {
+        return winsByElimination[player];
+    }
+
+    public long getWinsWithHealth(int player, int health) {
+        return healthAtWin[player][health];
+    }
+
+    public double getMeanHealthAtWin(int player) {
+        long wins = 0;
+        long total = 0;
+        for (int h = 0; h <= MAX_HEALTH; h++) {
+            wins += healthAtWin[player][h];
+            total += h * healthAtWin[player][h];
+        }
+        return wins == 0 ? 0 : (double) total / wins;
+    }
+
+    public long getTurns(int player) {
+        return turns[player];
+    }
+
+    public long getTurnsInTokyo(int player) {
+        return turnsInTokyo[player];
+    }
+
+    public long getTotalTurns() {
+        return totalTurns;
+    }
+
+    public long getExtraTurns(int player) {
+        return extraTurns[player];
+    }
+
+    public long getDamageDealt(int player) {
+        return damageDealt[player];
+    }
+
+    public long getDamageTaken(int player) {
+        return damageTaken[player];
+    }
+
+    // Lines for the results log: the game lengths and a table with a row per seat
+    public List<String> report(String[] playerClassNames) {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format(Locale.ROOT, "Game stats over %d games: %.1f turns on average (median %d, 90%% within %d, longest %s)",
+                games, getMeanLength(), getLengthAtPercentile(50), getLengthAtPercentile(90), longest()));
+        lines.add(String.format(Locale.ROOT, "%-34s %8s %8s %8s %10s %9s %9s %10s %10s",
+                "Player", "wins", "by fame", "by K.O.", "health@win", "in Tokyo", "extra", "dealt/gm", "taken/gm"));
+        for (int j = 0; j < turns.length; j++) {
+            long wins = winsByFame[j] + winsByElimination[j];
+            lines.add(String.format(Locale.ROOT, "%-34s %8d %7.1f%% %7.1f%% %10.2f %8.1f%% %8.1f%% %10.2f %10.2f",
+                    "#" + (j + 1) + " " + playerClassNames[j], wins,
+                    percent(winsByFame[j], wins), percent(winsByElimination[j], wins), getMeanHealthAtWin(j),
+                    percent(turnsInTokyo[j], totalTurns), percent(extraTurns[j], turns[j]),
+                    perGame(damageDealt[j]), perGame(damageTaken[j])));
+        }
+        lines.add("(in Tokyo: share of all turns that ended with the player in Tokyo, extra: share of the player's turns that earned one)");
+        return lines;
+    }
+
+    private String longest() {
+        for (int t = MAX_TURNS; t > 0; t--) {
+            if (gameLengths[t] > 0) return t == MAX_TURNS ? MAX_TURNS + "+" : String.valueOf(t);
+        }
+        return "0";
+    }
+
+    private static double percent(long part, long whole) {
+        return whole == 0 ? 0 : 100.0 * part / whole;
+    }
+
+    private double perGame(long total) {
+        return games == 0 ? 0 : (double) total / games;
+    }
+}
@@ -0,0 +1,109 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+// Streams the records of a journal written by JournalWriter back, one at a time. The file is
+// memory mapped in windows so even journals of millions of games are read without copying.
+//
+//   try (JournalReader reader = new JournalReader(path)) {
+//       while (reader.next()) { ... reader.getType() ... }
+//   }
+public class JournalReader implements AutoCloseable {
+    private static final long WINDOW_RECORDS = (1 << 26) / GameEvents.RECORD_SIZE;
+
+    private final FileChannel channel;
+    private final int numOfPlayers;
+    private final long numOfRecords;
+
+    private MappedByteBuffer window;
+    private long windowStart = 0;
+    private long windowRecords = 0;
+    private long index = -1;
+
+    private int game, turn, type, player, value, extra;
+
+    public JournalReader(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, GameEvents.HEADER_SIZE);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        if (header.getInt() != GameEvents.MAGIC) throw new IOException(file + " is not a game journal");
+        int version = header.getInt();
+        if (version != GameEvents.VERSION) throw new IOException("Unsupported journal version " + version);
+        int recordSize = header.getInt();
+        if (recordSize != GameEvents.RECORD_SIZE) throw new IOException("Unexpected record size " + recordSize);
+        numOfPlayers = header.getInt();
+
+        numOfRecords = (channel.size() - GameEvents.HEADER_SIZE) / GameEvents.RECORD_SIZE;
+    }
+
+    public int getNumOfPlayers() {
+        return numOfPlayers;
+    }
+
+    public long getNumOfRecords() {
+        return numOfRecords;
+    }
+
+    // Moves to the next record, false at the end of the journal
+    public boolean next() throws IOException {
+        if (index + 1 >= numOfRecords) return false;
+        index++;
+
+        if (index >= windowStart + windowRecords) {
+            windowStart = index;
+            windowRecords = Math.min(WINDOW_RECORDS, numOfRecords - index);
+            window = channel.map(FileChannel.MapMode.READ_ONLY, GameEvents.HEADER_SIZE + windowStart * GameEvents.RECORD_SIZE, windowRecords * GameEvents.RECORD_SIZE);
+            window.order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        game = window.getInt();
+        turn = window.getShort();
+        type = window.get();
+        player = window.get();
+        value = window.getInt();
+        extra = window.getInt();
+        return true;
+    }
+
+    public int getGame() { return game; }
+
+    public int getTurn() { return turn; }
+
+    public int getType() { return type; }
+
+    public int getPlayer() { return player; }
+
+    public int getValue() { return value; }
+
+    public int getExtra() { return extra; }
+
+    @Override
+    public String toString() {
+        return "game " + game + " turn " + turn + " " + GameEvents.name(type) + " player #" + (player + 1) + " value " + value + " extra " + extra;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Prints a journal as text: java JournalReader FILE [GAME]
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: JournalReader FILE [GAME]");
+            System.exit(2);
+        }
+        int onlyGame = args.length > 1 ? Integer.parseInt(args[1]) : -1;
+
+        try (JournalReader reader = new JournalReader(Paths.get(args[0]))) {
+            while (reader.next()) {
+                if (onlyGame == -1 || reader.getGame() == onlyGame) System.out.println(reader);
+            }
+        }
+    }
+}
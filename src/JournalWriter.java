@@ -0,0 +1,74 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Appends fixed-size event records (see GameEvents) to a journal file. Every worker gets its
+// own Buffer and the buffers reserve space in the file with a single atomic add, so workers
+// never lock each other out. A buffer is only written out between games while it has room,
+// so in practice every game's records end up next to each other in the file.
+public class JournalWriter implements AutoCloseable {
+    private static final int BUFFER_SIZE = 256 * 1024;
+    // Flush at the end of a game once less than this is left in the buffer
+    private static final int FLUSH_THRESHOLD = 32 * 1024;
+
+    private final FileChannel channel;
+    private final AtomicLong position = new AtomicLong(GameEvents.HEADER_SIZE);
+
+    public JournalWriter(Path file, int numOfPlayers) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+        ByteBuffer header = ByteBuffer.allocate(GameEvents.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(GameEvents.MAGIC).putInt(GameEvents.VERSION).putInt(GameEvents.RECORD_SIZE).putInt(numOfPlayers);
+        header.flip();
+        channel.write(header, 0);
+    }
+
+    public Buffer newBuffer() {
+        return new Buffer();
+    }
+
+    private void write(ByteBuffer data) throws IOException {
+        long at = position.getAndAdd(data.remaining());
+        while (data.hasRemaining()) {
+            at += channel.write(data, at);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // One per worker thread, not thread safe
+    public class Buffer {
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private int game;
+
+        public void startGame(int game) {
+            this.game = game;
+        }
+
+        public void record(int turn, byte type, int player, int value, int extra) {
+            if (buffer.remaining() < GameEvents.RECORD_SIZE) flush();
+            buffer.putInt(game).putShort((short) turn).put(type).put((byte) player).putInt(value).putInt(extra);
+        }
+
+        public void endGame() {
+            if (buffer.remaining() < FLUSH_THRESHOLD) flush();
+        }
+
+        public void flush() {
+            buffer.flip();
+            try {
+                write(buffer);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not write game journal", e);
+            }
+            buffer.clear();
+        }
+    }
+}
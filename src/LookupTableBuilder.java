@@ -0,0 +1,266 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import players.DiceMultisets;
+import players.PlayerAI_LookupTable;
+
+// Builds the table PlayerAI_LookupTable plays from. Every final roll gets a score following
+// the rules in Game.processDice, then for every roll, reroll, Tokyo and health/fame bucket the
+// keep with the best expected score over the rerolls that are left is picked.
+//   java LookupTableBuilder [src/players/PlayerAI_LookupTable.bin]
+public class LookupTableBuilder {
+    // What the parts of a roll are worth, in fame points (picked by playing Tournament with a few)
+    private static final double FAME = 1.0;
+    private static final double WIN = 8.0;
+    private static final double DAMAGE = 3.0;
+    private static final double EXTRA_TURN = 2.0;
+
+    private static final int FACES = DiceMultisets.FACES;
+    private static final int DICE = DiceMultisets.DICE;
+
+    // Every multiset by rank, and the multisets of n dice with the chance of rolling them
+    private final int[][] multisets = new int[DiceMultisets.COUNT][];
+    private final List<List<int[]>> rolls = new ArrayList<>();
+    private final List<List<Double>> chances = new ArrayList<>();
+    // For a roll made outside of Tokyo: the chance of each set of dice that gets scored, since
+    // processDice stops at the first 6 that hits whoever is in Tokyo. Key is the packed counts of
+    // the scored dice and whether a 6 hit.
+    private final List<Map<Integer, Double>> scoredOutsideTokyo = new ArrayList<>();
+
+    public static void main(String[] args) throws IOException {
+        String file = args.length > 0 ? args[0] : "src/players/" + PlayerAI_LookupTable.RESOURCE;
+        byte[] table = new LookupTableBuilder().build();
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(PlayerAI_LookupTable.MAGIC);
+            out.writeInt(PlayerAI_LookupTable.VERSION);
+            out.writeInt(table.length);
+            out.write(table);
+        }
+        System.out.println("Wrote " + table.length + " entries to " + file);
+    }
+
+    public LookupTableBuilder() {
+        for (int n = 0; n <= DICE; n++) {
+            rolls.add(new ArrayList<>());
+            chances.add(new ArrayList<>());
+            enumerate(new int[FACES], 0, n, n);
+        }
+        for (int[] counts : rolls.get(DICE)) {
+            multisets[DiceMultisets.rank(counts)] = counts;
+        }
+        for (int[] counts : multisets) {
+            scoredOutsideTokyo.add(scoredDice(counts));
+        }
+    }
+
+    public byte[] build() {
+        byte[] table = new byte[PlayerAI_LookupTable.SIZE];
+        for (int tokyo = 0; tokyo < 2; tokyo++) {
+            for (int hb = 0; hb < PlayerAI_LookupTable.HEALTH_BUCKETS; hb++) {
+                for (int fb = 0; fb < PlayerAI_LookupTable.FAME_BUCKETS; fb++) {
+                    double[] value = new double[DiceMultisets.COUNT];
+                    for (int rank = 0; rank < value.length; rank++) {
+                        value[rank] = bucketScore(rank, tokyo == 1, hb, fb);
+                    }
+                    double[] finalScore = value.clone();
+
+                    // Last reroll first, each one plays on with the values of the one after it
+                    for (int rerollsLeft = 1; rerollsLeft <= PlayerAI_LookupTable.REROLLS; rerollsLeft++) {
+                        double[] next = new double[value.length];
+                        for (int rank = 0; rank < value.length; rank++) {
+                            int[] best = new int[1];
+                            next[rank] = bestKeep(multisets[rank], finalScore[rank], value, best);
+                            table[PlayerAI_LookupTable.index(rank, rerollsLeft, tokyo == 1, hb, fb)] = (byte) best[0];
+                        }
+                        value = next;
+                    }
+                }
+            }
+        }
+        return table;
+    }
+
+    // Expected value of the best keep for the roll `counts`. Keeping everything ends the rerolls
+    // with `stop`, otherwise the rerolled dice land on a roll worth `value`. The keep goes in
+    // best[0] as a mask over the sorted dice.
+    private double bestKeep(int[] counts, double stop, double[] value, int[] best) {
+        double bestValue = stop;
+        best[0] = (1 << DICE) - 1;
+
+        int[] keep = new int[FACES];
+        int[] result = new int[FACES];
+        do {
+            int kept = 0;
+            for (int count : keep) {
+                kept += count;
+            }
+            if (kept == DICE) continue;
+
+            double expected = 0;
+            List<int[]> outcomes = rolls.get(DICE - kept);
+            List<Double> outcomeChances = chances.get(DICE - kept);
+            for (int o = 0; o < outcomes.size(); o++) {
+                int[] outcome = outcomes.get(o);
+                for (int face = 0; face < FACES; face++) {
+                    result[face] = keep[face] + outcome[face];
+                }
+                expected += outcomeChances.get(o) * value[DiceMultisets.rank(result)];
+            }
+            if (expected > bestValue + 1e-12) {
+                bestValue = expected;
+                best[0] = mask(keep, counts);
+            }
+        } while (next(keep, counts));
+        return bestValue;
+    }
+
+    // Score of a final roll, averaged over the health/fame values in the buckets
+    private double bucketScore(int rank, boolean inTokyo, int healthBucket, int fameBucket) {
+        double total = 0;
+        int cases = 0;
+        for (int health = 1; health <= 12; health++) {
+            if (PlayerAI_LookupTable.healthBucket(health) != healthBucket) continue;
+            for (int fame = 0; fame < 20; fame++) {
+                if (PlayerAI_LookupTable.fameBucket(fame) != fameBucket) continue;
+                total += score(rank, inTokyo, health, fame);
+                cases++;
+            }
+        }
+        return total / cases;
+    }
+
+    private double score(int rank, boolean inTokyo, int health, int fame) {
+        int[] counts = multisets[rank];
+        if (inTokyo) {
+            // Every die counts, 6s hit everyone else and 5s don't heal
+            return fameValue(counts, fame) + (counts[3] >= 3 ? EXTRA_TURN : 0) + DAMAGE * counts[5];
+        }
+
+        double total = 0;
+        int[] scored = new int[FACES];
+        for (Map.Entry<Integer, Double> entry : scoredOutsideTokyo.get(rank).entrySet()) {
+            int key = entry.getKey();
+            for (int face = 0; face < FACES - 1; face++) {
+                scored[face] = (key >>> (3 * face)) & 7;
+            }
+            boolean hit = (key >>> 15) != 0;
+
+            double value = fameValue(scored, fame) + (scored[3] >= 3 ? EXTRA_TURN : 0);
+            value += Math.min(scored[4], 12 - health) * (13 - health) / 6.0;
+            if (hit) value += DAMAGE;
+            total += entry.getValue() * value;
+        }
+        return total;
+    }
+
+    // Three or more 1s, 2s or 3s score that face plus one for every extra die
+    private static double fameValue(int[] counts, int fame) {
+        int gain = 0;
+        for (int face = 0; face < 3; face++) {
+            if (counts[face] >= 3) gain += face + 1 + counts[face] - 3;
+        }
+        if (gain == 0) return 0;
+        return fame + gain >= 20 ? WIN + FAME * (20 - fame) : FAME * gain;
+    }
+
+    // Goes through every order the dice of `counts` can be in (all equally likely) and collects
+    // which of them processDice gets to before the first 6
+    private static Map<Integer, Double> scoredDice(int[] counts) {
+        int[] dice = new int[DICE];
+        int d = 0;
+        for (int face = 0; face < FACES; face++) {
+            for (int i = 0; i < counts[face]; i++) {
+                dice[d++] = face;
+            }
+        }
+
+        Map<Integer, Double> scored = new HashMap<>();
+        int[] order = new int[DICE];
+        int permutations = permute(dice, order, 0, 0, scored);
+        scored.replaceAll((key, count) -> count / permutations);
+        return scored;
+    }
+
+    private static int permute(int[] dice, int[] order, int used, int length, Map<Integer, Double> scored) {
+        if (length == DICE) {
+            int key = 0;
+            for (int i = 0; i < DICE; i++) {
+                if (dice[order[i]] == FACES - 1) {
+                    key |= 1 << 15;
+                    break;
+                }
+                key += 1 << (3 * dice[order[i]]);
+            }
+            scored.merge(key, 1.0, Double::sum);
+            return 1;
+        }
+        int permutations = 0;
+        for (int i = 0; i < DICE; i++) {
+            if ((used & (1 << i)) != 0) continue;
+            order[length] = i;
+            permutations += permute(dice, order, used | (1 << i), length + 1, scored);
+        }
+        return permutations;
+    }
+
+    // Every way n dice can land and its chance, into rolls/chances
+    private void enumerate(int[] counts, int face, int left, int n) {
+        if (face == FACES - 1) {
+            counts[face] = left;
+            rolls.get(n).add(counts.clone());
+            chances.get(n).add(chance(counts, n));
+            return;
+        }
+        for (int count = 0; count <= left; count++) {
+            counts[face] = count;
+            enumerate(counts, face + 1, left - count, n);
+        }
+    }
+
+    // n! / (c1! ... c6!) / 6^n
+    private static double chance(int[] counts, int n) {
+        double chance = factorial(n) / Math.pow(FACES, n);
+        for (int count : counts) {
+            chance /= factorial(count);
+        }
+        return chance;
+    }
+
+    private static double factorial(int n) {
+        double f = 1;
+        for (int i = 2; i <= n; i++) {
+            f *= i;
+        }
+        return f;
+    }
+
+    // Steps keep to the next sub-multiset of counts, false once it wrapped around to all zeros
+    private static boolean next(int[] keep, int[] counts) {
+        for (int face = 0; face < FACES; face++) {
+            if (keep[face] < counts[face]) {
+                keep[face]++;
+                return true;
+            }
+            keep[face] = 0;
+        }
+        return false;
+    }
+
+    // The first keep[f] dice of each face, with the dice sorted
+    private static int mask(int[] keep, int[] counts) {
+        int mask = 0;
+        int bit = 0;
+        for (int face = 0; face < FACES; face++) {
+            mask |= ((1 << keep[face]) - 1) << bit;
+            bit += counts[face];
+        }
+        return mask;
+    }
+}
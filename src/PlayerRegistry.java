@@ -0,0 +1,178 @@
+import players.Player;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Modifier;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+// Every Player implementation that can be put at the table. The players package is scanned once
+// (folder or jar) together with any Player registered through ServiceLoader, and each usable
+// class gets a Supplier that creates it without reflection. Classes that look like players but
+// can't be used are remembered with the reason, so that can be shown to the user.
+public final class PlayerRegistry {
+    private static final String PACKAGE = "players";
+
+    private static PlayerRegistry instance;
+
+    private final Map<String, Supplier<Player>> factories = new TreeMap<>();
+    private final Map<String, Class<? extends Player>> types = new TreeMap<>();
+    private final Map<String, String> problems = new TreeMap<>();
+    // Why the players package couldn't be scanned, null if it could
+    private String scanProblem;
+
+    public static synchronized PlayerRegistry get() {
+        if (instance == null) {
+            instance = new PlayerRegistry();
+            instance.scan(PlayerRegistry.class.getClassLoader());
+        }
+        return instance;
+    }
+
+    // Names (without the package) of every player that can be played
+    public Set<String> getNames() {
+        return Collections.unmodifiableSet(factories.keySet());
+    }
+
+    public boolean contains(String name) {
+        return factories.containsKey(name);
+    }
+
+    // Why `name` can't be played, or null if it can
+    public String getProblem(String name) {
+        if (factories.containsKey(name)) return null;
+        if (problems.containsKey(name)) return problems.get(name);
+        if (scanProblem != null) return "No Player class called " + name + ", " + scanProblem;
+        return "No Player class called " + name + " in the " + PACKAGE + " package. Available: " + String.join(", ", factories.keySet());
+    }
+
+    public Supplier<Player> getFactory(String name) {
+        Supplier<Player> factory = factories.get(name);
+        if (factory == null) throw new IllegalArgumentException(getProblem(name));
+        return factory;
+    }
+
+    public Class<? extends Player> getType(String name) {
+        getFactory(name);
+        return types.get(name);
+    }
+
+    private void scan(ClassLoader loader) {
+        try {
+            Enumeration<URL> roots = loader.getResources(PACKAGE);
+            while (roots.hasMoreElements()) {
+                URL root = roots.nextElement();
+                if (root.getProtocol().equals("file")) {
+                    scanFolder(loader, new File(root.toURI()));
+                } else if (root.getProtocol().equals("jar")) {
+                    scanJar(loader, root);
+                }
+            }
+        } catch (IOException | URISyntaxException e) {
+            // Players registered through ServiceLoader may still be found, so this isn't fatal
+            scanProblem = "could not scan the " + PACKAGE + " package: " + e.getMessage();
+            System.err.println("Could not scan the " + PACKAGE + " package: " + e.getMessage());
+        }
+
+        // Players that live somewhere else but registered themselves
+        ServiceLoader.load(Player.class, loader).stream().forEach(provider -> register(provider.type()));
+    }
+
+    private void scanFolder(ClassLoader loader, File folder) {
+        File[] files = folder.listFiles();
+        if (files == null) return;
+        for (File file : files) {
+            String fileName = file.getName();
+            if (fileName.endsWith(".class") && !fileName.contains("$")) {
+                load(loader, PACKAGE + "." + fileName.substring(0, fileName.length() - ".class".length()));
+            }
+        }
+    }
+
+    private void scanJar(ClassLoader loader, URL root) throws IOException {
+        URLConnection connection = root.openConnection();
+        if (!(connection instanceof JarURLConnection)) return;
+        try (JarFile jar = ((JarURLConnection) connection).getJarFile()) {
+            Enumeration<JarEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                String entryName = entries.nextElement().getName();
+                if (entryName.startsWith(PACKAGE + "/") && entryName.endsWith(".class") && !entryName.contains("$")
+                        && entryName.indexOf('/', PACKAGE.length() + 1) == -1) {
+                    load(loader, entryName.substring(0, entryName.length() - ".class".length()).replace('/', '.'));
+                }
+            }
+        }
+    }
+
+    private void load(ClassLoader loader, String className) {
+        try {
+            register(Class.forName(className, false, loader));
+        } catch (ClassNotFoundException | LinkageError e) {
+            problems.put(simpleName(className), "Error loading " + className + ": " + e);
+        }
+    }
+
+    private void register(Class<?> type) {
+        String name = type.getSimpleName();
+        if (!Player.class.isAssignableFrom(type) || type == Player.class) return;
+
+        if (type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+            problems.put(name, name + " is abstract and can't be played");
+            return;
+        }
+        if (!Modifier.isPublic(type.getModifiers())) {
+            problems.put(name, name + " must be public");
+            return;
+        }
+
+        try {
+            factories.put(name, createFactory(type.asSubclass(Player.class)));
+            types.put(name, type.asSubclass(Player.class));
+            problems.remove(name);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            problems.put(name, name + " needs a public constructor without parameters");
+        }
+    }
+
+    // Turns the no-argument constructor into a Supplier, so creating a player is a plain call
+    @SuppressWarnings("unchecked")
+    private static Supplier<Player> createFactory(Class<? extends Player> type) throws NoSuchMethodException, IllegalAccessException {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodHandle constructor = lookup.findConstructor(type, MethodType.methodType(void.class));
+        try {
+            return (Supplier<Player>) LambdaMetafactory.metafactory(lookup, "get",
+                    MethodType.methodType(Supplier.class), MethodType.methodType(Object.class),
+                    constructor, MethodType.methodType(type)).getTarget().invoke();
+        } catch (Throwable e) {
+            // Fall back to calling the constructor handle directly
+            return () -> {
+                try {
+                    return (Player) constructor.invoke();
+                } catch (RuntimeException | Error ex) {
+                    throw ex;
+                } catch (Throwable ex) {
+                    throw new IllegalStateException(ex);
+                }
+            };
+        }
+    }
+
+    private static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+}
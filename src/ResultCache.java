@@ -0,0 +1,339 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import players.Player;
+
+// Results of earlier runs on disk, so running the same matchup with the same seed again costs
+// nothing and a longer run only plays the games it doesn't have yet. Games are seeded one by one
+// from the master seed, so the first n games of a run are the same whatever its length.
+//
+// A run is keyed by the players in seat order, a hash of each player's bytecode, a hash of the
+// engine's bytecode, the master seed, the system properties strategies read settings from that
+// change how they play (SETTINGS) and the contents of the files the external bot runs (FILES).
+// A player's hash covers its class file and everything in the players package it refers to:
+// nested classes, helpers, other players it plays with and resources it loads by name. Every key
+// has a file holding the wins and GameStats of each run length played.
+public class ResultCache {
+    private static final int MAGIC = 0x4B4F5452; // "KOTR"
+    private static final int VERSION = 1;
+    private static final String PACKAGE = "players";
+    // What decides how a seeded game plays out and what's recorded of it, apart from the players
+    private static final Class<?>[] ENGINE = {Game.class, State.class, DiceSource.class, BulkDice.class, XoshiroDice.class, GameEngine.class, GameStats.class};
+    // Settings that change how games play out, names ending in '.' cover every setting starting
+    // with them. Others, like kot.logLines or kot.bot.timeout, don't change the results.
+    private static final String[] SETTINGS = {"kot.mc.rollouts", "kot.mc.millis", "kot.mc.threads", "kot.bot.command", "kot.bot.files", "kot.tune."};
+    // Settings naming files the games depend on, separated by spaces: the words of the bot's
+    // command that are files (its program or script) and whatever else it reads in kot.bot.files
+    private static final String[] FILES = {"kot.bot.command", "kot.bot.files"};
+
+    private final Path dir;
+    // Hashes are worked out once per class, classes don't change while the JVM runs
+    private static final Map<Class<?>, String> hashes = new HashMap<>();
+    private static Map<String, byte[]> packageFiles;
+
+    public ResultCache(Path dir) {
+        this.dir = dir;
+    }
+
+    public static Path defaultDir() {
+        return Paths.get(System.getProperty("user.home"), ".kot", "results");
+    }
+
+    public Path getDir() {
+        return dir;
+    }
+
+    // Wins and stats of the first `games` games of a run
+    public static class Result {
+        final int games;
+        final int[] wins;
+        final GameStats stats;
+
+        Result(int games, int[] wins, GameStats stats) {
+            this.games = games;
+            this.wins = wins;
+            this.stats = stats;
+        }
+    }
+
+    public String key(String[] players, long seed) throws IOException {
+        return codeKey(players) + "|seed=" + seed;
+    }
+
+    // Everything in the key but the seed: what plays the games and how it's set up
+    static synchronized String codeKey(String[] players) throws IOException {
+        StringBuilder key = new StringBuilder("players=").append(String.join(",", players));
+        key.append("|classes=");
+        for (String name : players) {
+            key.append(hash(PlayerRegistry.get().getType(name))).append(',');
+        }
+        key.append("|engine=").append(engineHash());
+        key.append("|settings=");
+        for (Map.Entry<String, String> setting : settings().entrySet()) {
+            key.append(setting.getKey()).append('=').append(setting.getValue()).append(',');
+        }
+        key.append("|files=");
+        for (String name : FILES) {
+            String setting = System.getProperty(name);
+            if (setting == null) continue;
+            for (String word : setting.trim().split("\\s+")) {
+                Path file = Paths.get(word);
+                if (!word.isEmpty() && Files.isRegularFile(file)) {
+                    key.append(word).append('=').append(hex(digest(Files.readAllBytes(file)))).append(',');
+                }
+            }
+        }
+        return key.toString();
+    }
+
+    // The cached run of `key` with the most games, but no more than maxGames. Null if none.
+    public Result find(String key, int numOfPlayers, int maxGames) throws IOException {
+        Result best = null;
+        for (Result result : read(key, numOfPlayers)) {
+            if (result.games <= maxGames && (best == null || result.games > best.games)) best = result;
+        }
+        return best;
+    }
+
+    // Adds a run to the file of `key`. The file is replaced in one step, so a reader never sees
+    // half of it and a crash leaves the old one.
+    public synchronized void store(String key, Result result) throws IOException {
+        Map<Integer, Result> results = new TreeMap<>();
+        for (Result old : read(key, result.wins.length)) {
+            results.put(old.games, old);
+        }
+        results.put(result.games, result);
+
+        Files.createDirectories(dir);
+        writeAtomically(file(key), out -> {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(key);
+            out.writeInt(result.wins.length);
+            out.writeInt(results.size());
+            for (Result r : results.values()) {
+                out.writeInt(r.games);
+                for (int win : r.wins) {
+                    out.writeInt(win);
+                }
+                r.stats.write(out);
+            }
+        });
+    }
+
+    interface Contents {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    // Writes a temp file next to `file` and renames it over `file`, so whoever reads `file`
+    // either gets the old contents or all of the new ones, even if the JVM dies halfway
+    static void writeAtomically(Path file, Contents contents) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                contents.write(out);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private List<Result> read(String key, int numOfPlayers) throws IOException {
+        List<Result> results = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file(key))))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return results;
+            // A different key with the same file name, as good as a miss
+            if (!in.readUTF().equals(key) || in.readInt() != numOfPlayers) return results;
+            int count = in.readInt();
+            for (int r = 0; r < count; r++) {
+                int games = in.readInt();
+                int[] wins = new int[numOfPlayers];
+                for (int j = 0; j < numOfPlayers; j++) {
+                    wins[j] = in.readInt();
+                }
+                results.add(new Result(games, wins, GameStats.read(in, numOfPlayers)));
+            }
+        } catch (NoSuchFileException e) {
+            // Nothing cached yet
+        }
+        return results;
+    }
+
+    private Path file(String key) {
+        return dir.resolve(hex(digest(key.getBytes(StandardCharsets.UTF_8))).substring(0, 32) + ".kotr");
+    }
+
+    private static Map<String, String> settings() {
+        Map<String, String> settings = new TreeMap<>();
+        for (String name : System.getProperties().stringPropertyNames()) {
+            for (String setting : SETTINGS) {
+                if (setting.endsWith(".") ? name.startsWith(setting) : name.equals(setting)) settings.put(name, System.getProperty(name));
+            }
+        }
+        return settings;
+    }
+
+    private static String engineHash() throws IOException {
+        MessageDigest digest = sha256();
+        for (Class<?> type : ENGINE) {
+            digest.update(hash(type).getBytes(StandardCharsets.UTF_8));
+        }
+        return hex(digest.digest());
+    }
+
+    private static String hash(Class<?> type) throws IOException {
+        String hash = hashes.get(type);
+        if (hash != null) return hash;
+
+        String fileName = type.getName().substring(type.getName().lastIndexOf('.') + 1) + ".class";
+        MessageDigest digest = sha256();
+        if (type.getPackageName().equals(PACKAGE)) {
+            hashWithReferences(digest, fileName, packageFiles().get(fileName));
+        } else {
+            hashWithReferences(digest, null, readClassFile(type, fileName));
+            // Default-package classes bring their nested classes along, e.g. Game$Fork
+            for (Class<?> nested : type.getDeclaredClasses()) {
+                digest.update(hash(nested).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        hash = hex(digest.digest());
+        hashes.put(type, hash);
+        return hash;
+    }
+
+    // Hashes a class file together with every file of the players package it refers to, directly
+    // or through one of those. `name` is its file name if it's in the package itself.
+    private static void hashWithReferences(MessageDigest digest, String name, byte[] start) throws IOException {
+        if (start == null) throw new IOException("Can't read " + PACKAGE + "/" + name);
+        Map<String, byte[]> files = packageFiles();
+
+        TreeSet<String> found = new TreeSet<>();
+        List<byte[]> toScan = new ArrayList<>();
+        if (name != null) found.add(name);
+        toScan.add(start);
+        while (!toScan.isEmpty()) {
+            byte[] bytes = toScan.remove(toScan.size() - 1);
+            for (Map.Entry<String, byte[]> file : files.entrySet()) {
+                if (found.contains(file.getKey())) continue;
+                // Classes are referred to as players/Name, resources by their file name
+                String fileName = file.getKey();
+                String reference = fileName.endsWith(".class") ? PACKAGE + "/" + fileName.substring(0, fileName.length() - ".class".length()) : fileName;
+                if (contains(bytes, reference.getBytes(StandardCharsets.UTF_8))) {
+                    found.add(fileName);
+                    toScan.add(file.getValue());
+                }
+            }
+        }
+
+        if (name == null) digest.update(start);
+        for (String fileName : found) {
+            digest.update(fileName.getBytes(StandardCharsets.UTF_8));
+            digest.update(files.get(fileName));
+        }
+    }
+
+    // Every file of the players package, by file name
+    private static Map<String, byte[]> packageFiles() throws IOException {
+        if (packageFiles != null) return packageFiles;
+        packageFiles = new HashMap<>();
+        URL root = Player.class.getResource("Player.class");
+        if (root == null) throw new IOException("Can't find the " + PACKAGE + " package");
+        try {
+            if (root.getProtocol().equals("file")) {
+                File[] files = new File(root.toURI()).getParentFile().listFiles();
+                if (files == null) throw new IOException("Can't list the " + PACKAGE + " package");
+                for (File file : files) {
+                    if (file.isFile()) packageFiles.put(file.getName(), Files.readAllBytes(file.toPath()));
+                }
+            } else if (root.getProtocol().equals("jar")) {
+                URLConnection connection = root.openConnection();
+                if (!(connection instanceof JarURLConnection)) throw new IOException("Can't open " + root);
+                try (JarFile jar = ((JarURLConnection) connection).getJarFile()) {
+                    Enumeration<JarEntry> entries = jar.entries();
+                    while (entries.hasMoreElements()) {
+                        JarEntry entry = entries.nextElement();
+                        String name = entry.getName();
+                        if (entry.isDirectory() || !name.startsWith(PACKAGE + "/") || name.indexOf('/', PACKAGE.length() + 1) != -1) continue;
+                        try (InputStream in = jar.getInputStream(entry)) {
+                            packageFiles.put(name.substring(PACKAGE.length() + 1), in.readAllBytes());
+                        }
+                    }
+                }
+            } else {
+                throw new IOException("Can't read classes from " + root);
+            }
+        } catch (URISyntaxException e) {
+            throw new IOException("Can't read " + root, e);
+        } catch (IOException e) {
+            packageFiles = null;
+            throw e;
+        }
+        return packageFiles;
+    }
+
+    private static byte[] readClassFile(Class<?> type, String fileName) throws IOException {
+        try (InputStream in = type.getResourceAsStream(fileName)) {
+            if (in == null) throw new IOException("Can't read the class file of " + type.getName());
+            return in.readAllBytes();
+        }
+    }
+
+    private static boolean contains(byte[] bytes, byte[] part) {
+        outer:
+        for (int i = 0; i <= bytes.length - part.length; i++) {
+            for (int k = 0; k < part.length; k++) {
+                if (bytes[i + k] != part[k]) continue outer;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static byte[] digest(byte[] bytes) {
+        return sha256().digest(bytes);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is missing from this JVM", e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
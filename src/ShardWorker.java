@@ -0,0 +1,148 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// A worker process of a Coordinator: connects to it, plays the shards it's sent with a
+// GameEngine of its own and sends back the wins and stats of each, until the coordinator
+// closes the connection. While it plays a shard it tells the coordinator how many games it has
+// finished every Coordinator.HEARTBEAT_MILLIS, so a hung worker can be told from a slow one.
+// Coordinator.launch starts these itself, more can join by hand:
+//   java -Djava.awt.headless=true ShardWorker localhost:PORT [--threads N]
+// A worker needs the same players, classes and kot.* settings as the coordinator, it refuses
+// shards of anything else.
+public class ShardWorker {
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+
+        String address = null;
+        int threads = 1;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("--threads")) threads = Integer.parseInt(args[++i]);
+                else if (address == null && !args[i].startsWith("--")) address = args[i];
+                else throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            address = null;
+        }
+        int colon = address == null ? -1 : address.lastIndexOf(':');
+        if (colon < 0) {
+            System.err.println("Usage: ShardWorker HOST:PORT [--threads N]");
+            System.exit(2);
+        }
+
+        try (Socket socket = new Socket(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)))) {
+            socket.setTcpNoDelay(true);
+            serve(new DataInputStream(new BufferedInputStream(socket.getInputStream())),
+                    new DataOutputStream(new BufferedOutputStream(socket.getOutputStream())), threads);
+        } catch (IOException e) {
+            System.err.println("Worker stopped working for " + address + ": " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void serve(DataInputStream in, DataOutputStream out, int threads) throws IOException {
+        out.writeInt(Coordinator.MAGIC);
+        out.writeInt(Coordinator.VERSION);
+        out.flush();
+
+        while (true) {
+            Coordinator.Shard shard;
+            try {
+                shard = Coordinator.Shard.read(in);
+            } catch (EOFException e) {
+                // The coordinator is done with us
+                return;
+            }
+
+            if (!ResultCache.codeKey(shard.players).equals(shard.key)) {
+                String reason = "this worker has other classes or kot.* settings than the coordinator";
+                out.writeByte(Coordinator.REFUSED);
+                out.writeInt(shard.id);
+                out.writeUTF(reason);
+                out.flush();
+                throw new IOException(reason);
+            }
+
+            AtomicLong played = new AtomicLong();
+            AtomicBoolean playing = new AtomicBoolean(true);
+            int id = shard.id;
+            ScheduledFuture<?> heartbeat = HEARTBEAT.scheduleAtFixedRate(() -> beat(out, id, played, playing),
+                    Coordinator.HEARTBEAT_MILLIS, Coordinator.HEARTBEAT_MILLIS, TimeUnit.MILLISECONDS);
+            int[] wins;
+            GameStats stats;
+            try {
+                GameEngine engine = new GameEngine(shard.players.length, shard.players, shard.to - shard.from, GameIntervals.OVERALL, 1, threads, new GameLogger() {
+                    // The worker's engine only reports to the coordinator
+                    @Override
+                    public void log(String s) {}
+
+                    @Override
+                    public void progress(long gamesDone, long totalGames) {
+                        played.set(gamesDone);
+                    }
+                });
+                engine.setSeed(shard.seed);
+                engine.setFirstGame(shard.from);
+                wins = engine.run();
+                stats = engine.getStats();
+            } catch (RuntimeException e) {
+                stopBeating(out, playing, heartbeat);
+                out.writeByte(Coordinator.FAILED);
+                out.writeInt(shard.id);
+                out.writeUTF(String.valueOf(e.getMessage()));
+                out.flush();
+                continue;
+            }
+
+            stopBeating(out, playing, heartbeat);
+            out.writeByte(Coordinator.DONE);
+            out.writeInt(shard.id);
+            for (int win : wins) {
+                out.writeInt(win);
+            }
+            stats.write(out);
+            out.flush();
+        }
+    }
+
+    private static final ScheduledExecutorService HEARTBEAT = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "worker-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static void beat(DataOutputStream out, int shard, AtomicLong played, AtomicBoolean playing) {
+        synchronized (out) {
+            if (!playing.get()) return;
+            try {
+                out.writeByte(Coordinator.PLAYING);
+                out.writeInt(shard);
+                out.writeInt((int) played.get());
+                out.flush();
+            } catch (IOException e) {
+                // The coordinator gave up on this worker, e.g. as hung, the shard is played elsewhere
+                System.err.println("Worker lost the coordinator: " + e.getMessage());
+                System.exit(1);
+            }
+        }
+    }
+
+    // No beat may come after the answer, the coordinator would take it for the next shard's
+    private static void stopBeating(DataOutputStream out, AtomicBoolean playing, ScheduledFuture<?> heartbeat) {
+        synchronized (out) {
+            playing.set(false);
+        }
+        heartbeat.cancel(false);
+    }
+}
@@ -1,34 +1,154 @@
-public class State {
+import java.util.Arrays;
+
+import players.DiceCounts;
+import players.GameFork;
+import players.GameView;
+
+// Board state of a single game. The arrays are owned by the State and changed in place, so
+// reading and updating a value never allocates. Players get it as a read-only GameView.
+public class State implements GameView {
     private int currentTurn;
     private int currentPlayer;
     private int inTokyo;
-    private int[] dice;
-    private int[] playerHealths;
-    private int[] playerFames;
+    private int rerollsLeft;
+    private int[] dice = new int[6];
+    // The dice counted as in DiceCounts
+    private int diceCounts;
+    private int[] playerHealths = new int[0];
+    private int[] playerFames = new int[0];
+
+    // The game this is the board of, so players can fork it
+    private Game game;
+
+    // Puts every player back to the starting health/fame and clears the dice
+    public void reset(int numOfPlayers, int health, int fame) {
+        if (playerHealths.length != numOfPlayers) {
+            playerHealths = new int[numOfPlayers];
+            playerFames = new int[numOfPlayers];
+        }
+        Arrays.fill(playerHealths, health);
+        Arrays.fill(playerFames, fame);
+        Arrays.fill(dice, 0);
+        diceCounts = 0;
+        currentTurn = 0;
+        inTokyo = -1;
+        rerollsLeft = 0;
+    }
+
+    void setGame(Game game) {
+        this.game = game;
+    }
+
+    Game getGame() {
+        return game;
+    }
+
+    @Override
+    public GameFork newFork() {
+        if (game == null) throw new UnsupportedOperationException("This board isn't part of a game");
+        return game.newFork();
+    }
+
+    // Same board as `other`, which must have as many players
+    void copyFrom(State other) {
+        currentTurn = other.currentTurn;
+        currentPlayer = other.currentPlayer;
+        inTokyo = other.inTokyo;
+        rerollsLeft = other.rerollsLeft;
+        if (playerHealths.length != other.playerHealths.length) {
+            playerHealths = new int[other.playerHealths.length];
+            playerFames = new int[other.playerFames.length];
+        }
+        System.arraycopy(other.dice, 0, dice, 0, dice.length);
+        diceCounts = other.diceCounts;
+        System.arraycopy(other.playerHealths, 0, playerHealths, 0, playerHealths.length);
+        System.arraycopy(other.playerFames, 0, playerFames, 0, playerFames.length);
+    }
 
     // Getters
+    @Override
     public int getCurrentTurn(){
         return currentTurn;
     }
 
+    @Override
     public int getCurrentPlayer() {
         return currentPlayer;
     }
 
+    @Override
     public int getInTokyo() {
         return inTokyo;
     }
 
-    public int[] getDice() {
-        return dice.clone();
+    @Override
+    public int getNumOfPlayers() {
+        return playerHealths.length;
+    }
+
+    @Override
+    public int getNumOfDice() {
+        return dice.length;
+    }
+
+    @Override
+    public int getRerollsLeft() {
+        return rerollsLeft;
     }
 
-    public int[] getPlayerHealths() {
-        return playerHealths.clone();
+    @Override
+    public int getDie(int index) {
+        return dice[index];
     }
 
-    public int[] getPlayerFames() {
-        return playerFames.clone();
+    @Override
+    public int getDiceCounts() {
+        return diceCounts;
+    }
+
+    // Counts of the dice that come before the first 6, all of them when there is no 6
+    public int getDiceCountsBeforeSix() {
+        int counts = 0;
+        for (int die : dice) {
+            if (die == 6) break;
+            counts = DiceCounts.add(counts, die);
+        }
+        return counts;
+    }
+
+    @Override
+    public int getPlayerHealth(int player) {
+        return playerHealths[player];
+    }
+
+    @Override
+    public int getPlayerFame(int player) {
+        return playerFames[player];
+    }
+
+    @Override
+    public int countAlive() {
+        int alive = 0;
+        for (int health : playerHealths) {
+            if (health != 0) alive++;
+        }
+        return alive;
+    }
+
+    public boolean anyPlayerHasFame(int fame) {
+        for (int f : playerFames) {
+            if (f == fame) return true;
+        }
+        return false;
+    }
+
+    // The dice in the journal's format, see GameEvents.packDice
+    public int packDice() {
+        return GameEvents.packDice(dice);
+    }
+
+    public String diceToString() {
+        return Arrays.toString(dice);
     }
 
 
@@ -45,15 +165,44 @@ public class State {
         this.inTokyo = inTokyo;
     }
 
-    public void setDice(int[] dice) {
-        this.dice = dice;
+    public void setRerollsLeft(int rerollsLeft) {
+        this.rerollsLeft = rerollsLeft;
+    }
+
+    public void setDie(int index, int face) {
+        dice[index] = face;
+        diceCounts = DiceCounts.of(dice);
+    }
+
+    // Rolls the dice flagged in reroll, or all of them when reroll is null
+    public void rollDice(DiceSource source, boolean[] reroll) {
+        source.roll(dice, reroll);
+        countDice();
+    }
+
+    // Counts the dice once per roll so neither the scoring nor the players have to. Every die
+    // has a face after a roll, so this doesn't need a single branch.
+    private void countDice() {
+        int counts = 0;
+        for (int die : dice) {
+            counts = DiceCounts.add(counts, die);
+        }
+        diceCounts = counts;
+    }
+
+    public void setPlayerHealth(int player, int health) {
+        playerHealths[player] = health;
+    }
+
+    public void setPlayerFame(int player, int fame) {
+        playerFames[player] = fame;
     }
 
-    public void setPlayerHealths(int[] playerHealths) {
-        this.playerHealths = playerHealths;
+    public void addPlayerHealth(int player, int deltaHealth) {
+        playerHealths[player] += deltaHealth;
     }
 
-    public void setPlayerFames(int[] playerFames) {
-        this.playerFames = playerFames;
+    public void addPlayerFame(int player, int deltaFame) {
+        playerFames[player] += deltaFame;
     }
-}
\ No newline at end of file
+}
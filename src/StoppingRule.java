@@ -0,0 +1,82 @@
+import java.util.Locale;
+
+// When a run has played enough games to stop before it reaches its number of games. GameEngine
+// checks it after 1000, 2000, 4000, ... games, so where a run stops only depends on its seed
+// and not on the number of threads.
+public class StoppingRule {
+    private static final double Z = 1.96;
+    // Checking the same run again and again lets a chance difference through more often than a
+    // single test would. With at most ~20 checks this keeps that at a few percent overall.
+    private static final double Z_SEQUENTIAL = 3.0;
+    // Too few decided games and the normal approximation behind the test doesn't hold
+    private static final int MIN_DECIDED = 100;
+
+    private final double precision;
+    private final int playerA;
+    private final int playerB;
+
+    private StoppingRule(double precision, int playerA, int playerB) {
+        this.precision = precision;
+        this.playerA = playerA;
+        this.playerB = playerB;
+    }
+
+    // Stops once every player's win rate is known to within +/- halfWidth (e.g. 0.005) at 95%
+    public static StoppingRule precision(double halfWidth) {
+        if (!(halfWidth > 0 && halfWidth < 1)) throw new IllegalArgumentException("Precision must be between 0 and 1");
+        return new StoppingRule(halfWidth, -1, -1);
+    }
+
+    // Stops once one of the two players (by index) clearly wins more often than the other
+    public static StoppingRule significance(int playerA, int playerB) {
+        if (playerA < 0 || playerB < 0 || playerA == playerB) throw new IllegalArgumentException("Need two different players to compare");
+        return new StoppingRule(0, playerA, playerB);
+    }
+
+    // Whether the rule can be used at a table of numOfPlayers
+    public boolean fits(int numOfPlayers) {
+        return playerA < numOfPlayers && playerB < numOfPlayers;
+    }
+
+    public boolean isMet(int[] wins, int games) {
+        if (games == 0) return false;
+        if (precision > 0) {
+            for (int win : wins) {
+                if (wilson(win, games)[1] > precision) return false;
+            }
+            return true;
+        }
+        return Math.abs(z(wins)) >= Z_SEQUENTIAL;
+    }
+
+    // The sign test on the games one of the two won: how many standard deviations apart they are
+    private double z(int[] wins) {
+        int a = wins[playerA];
+        int b = wins[playerB];
+        if (a + b < MIN_DECIDED) return 0;
+        return (a - b) / Math.sqrt(a + b);
+    }
+
+    // What was asked for and how far the run got, for the results
+    public String describe(int[] wins, int games, String[] names) {
+        if (precision > 0) {
+            double widest = 0;
+            for (int win : wins) {
+                widest = Math.max(widest, wilson(win, games)[1]);
+            }
+            return String.format(Locale.ROOT, "Target: win rates to +/-%.2f%% (95%%), reached +/-%.2f%%", 100 * precision, 100 * widest);
+        }
+        return String.format(Locale.ROOT, "Target: a significant difference between #%d (%s) and #%d (%s), z = %.2f (needs %.1f)",
+                playerA + 1, names[playerA], playerB + 1, names[playerB], z(wins), Z_SEQUENTIAL);
+    }
+
+    // {center, half width} of the 95% Wilson score interval
+    static double[] wilson(long wins, long games) {
+        if (games == 0) return new double[] {0, 0};
+        double p = (double) wins / games;
+        double z2 = Z * Z / games;
+        double center = (p + z2 / 2) / (1 + z2);
+        double half = Z * Math.sqrt(p * (1 - p) / games + z2 / (4.0 * games)) / (1 + z2);
+        return new double[] {center, half};
+    }
+}
@@ -0,0 +1,480 @@
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import players.Player;
+import players.Tunable;
+
+// Looks for better parameters of a Tunable strategy by playing candidate parameter sets against
+// fixed opponents. Every candidate plays the same game numbers with the same master seed and
+// seatings, so they all get the same dice and the differences between them are the parameters,
+// not luck. The candidates' games are cut into chunks that share one worker pool, like Tournament.
+//
+// Searches: a grid over the --param ranges, random points in the ranges, or a CMA-ES style
+// search (a diagonal covariance, weighted recombination of the better half) starting from the
+// defaults. The best set was picked on the search games, so it looks better there than it is;
+// it's played again against the defaults on fresh games for the reported win rates.
+//
+//   java -Djava.awt.headless=true StrategyOptimizer --tune PlayerAI_GeeterPriffin --search random --candidates 50 --games 20000 PlayerNaive PlayerAI_NaivePlusPlus
+public class StrategyOptimizer {
+    // Most games one job plays, small enough to keep every thread busy until the end
+    private static final int CHUNK = 10_000;
+    // Grids bigger than this are almost certainly a mistake in the ranges
+    private static final int MAX_GRID = 100_000;
+
+    private final String tuned;
+    private final String[] opponents;
+    private final Tunable.Parameter[] parameters;
+    private final int gamesPerCandidate;
+    private final int threads;
+    private long masterSeed = XoshiroDice.mix64(System.nanoTime());
+
+    // The range each parameter is searched in, a parameter without one keeps its default
+    private final int[] lows;
+    private final int[] highs;
+    private final int[] steps;
+    private final boolean[] searched;
+
+    // Every candidate played on the search games, by its values
+    private final Map<String, Candidate> evaluated = new HashMap<>();
+    private final AtomicLong gamesDone = new AtomicLong();
+
+    // A parameter set and how it did in the games it played
+    public static class Candidate {
+        final int[] values;
+        long wins;
+        long games;
+
+        Candidate(int[] values) {
+            this.values = values;
+        }
+
+        public double getWinRate() {
+            return games == 0 ? 0 : (double) wins / games;
+        }
+
+        public double getConfidence() {
+            return StoppingRule.wilson(wins, games)[1];
+        }
+    }
+
+    public StrategyOptimizer(String tuned, List<String> opponents, int gamesPerCandidate, int threads) {
+        Player player = PlayerRegistry.get().getFactory(tuned).get();
+        if (!(player instanceof Tunable)) throw new IllegalArgumentException(tuned + " has no parameters to tune");
+        if (opponents.isEmpty() || opponents.size() > 5) throw new IllegalArgumentException("Need between 1 and 5 opponents");
+        for (String name : opponents) {
+            PlayerRegistry.get().getFactory(name);
+        }
+
+        this.tuned = tuned;
+        this.opponents = opponents.toArray(new String[0]);
+        this.parameters = ((Tunable) player).getParameters();
+        this.gamesPerCandidate = gamesPerCandidate;
+        this.threads = Math.max(1, threads);
+        lows = new int[parameters.length];
+        highs = new int[parameters.length];
+        steps = new int[parameters.length];
+        searched = new boolean[parameters.length];
+    }
+
+    public void setSeed(long masterSeed) {
+        this.masterSeed = masterSeed;
+    }
+
+    public long getSeed() {
+        return masterSeed;
+    }
+
+    // Searches `name` from low to high in steps of `step` (steps only matter to the grid)
+    public void setRange(String name, int low, int high, int step) {
+        int i = Tunable.indexOf(parameters, name);
+        if (i < 0) throw new IllegalArgumentException(tuned + " has no parameter " + name + ", it has " + names());
+        if (low > high || step < 1) throw new IllegalArgumentException("Bad range for " + name);
+        lows[i] = low;
+        highs[i] = high;
+        steps[i] = step;
+        searched[i] = true;
+    }
+
+    // Searches every parameter without a range of its own over all the values it allows
+    public void searchAll() {
+        for (int i = 0; i < parameters.length; i++) {
+            if (!searched[i]) {
+                lows[i] = parameters[i].min;
+                highs[i] = parameters[i].max;
+                steps[i] = 1;
+                searched[i] = true;
+            }
+        }
+    }
+
+    // Games played so far, safe to call from any thread while the search runs
+    public long getGamesDone() {
+        return gamesDone.get();
+    }
+
+    // Every combination of the searched parameters' steps
+    public List<Candidate> grid() {
+        long size = 1;
+        for (int i = 0; i < parameters.length; i++) {
+            if (searched[i]) size *= (highs[i] - lows[i]) / steps[i] + 1;
+            if (size > MAX_GRID) throw new IllegalArgumentException("The grid has more than " + MAX_GRID + " points, narrow the --param ranges");
+        }
+
+        List<int[]> points = new ArrayList<>();
+        int[] values = Tunable.defaults(parameters);
+        for (int i = 0; i < parameters.length; i++) {
+            if (searched[i]) values[i] = lows[i];
+        }
+        while (true) {
+            points.add(values.clone());
+            int i = parameters.length - 1;
+            while (i >= 0 && (!searched[i] || values[i] + steps[i] > highs[i])) {
+                if (searched[i]) values[i] = lows[i];
+                i--;
+            }
+            if (i < 0) break;
+            values[i] += steps[i];
+        }
+        return evaluate(points);
+    }
+
+    // `count` sets drawn evenly from the ranges, besides the defaults
+    public List<Candidate> random(int count) {
+        SplittableRandom random = new SplittableRandom(masterSeed);
+        List<int[]> points = new ArrayList<>();
+        points.add(Tunable.defaults(parameters));
+        for (int c = 0; c < count; c++) {
+            int[] values = Tunable.defaults(parameters);
+            for (int i = 0; i < parameters.length; i++) {
+                if (searched[i]) values[i] = lows[i] + steps[i] * random.nextInt((highs[i] - lows[i]) / steps[i] + 1);
+            }
+            points.add(values);
+        }
+        return evaluate(points);
+    }
+
+    // `generations` rounds of `lambda` sets drawn around a mean that starts at the defaults. Each
+    // round the mean moves to the weighted mean of the better half and each parameter's spread
+    // to how far those were from the old mean, so it narrows in on what works.
+    public List<Candidate> evolve(int generations, int lambda) {
+        SplittableRandom random = new SplittableRandom(masterSeed);
+        int mu = Math.max(1, lambda / 2);
+        double[] weights = new double[mu];
+        double sum = 0;
+        for (int k = 0; k < mu; k++) {
+            weights[k] = Math.log(mu + 0.5) - Math.log(k + 1);
+            sum += weights[k];
+        }
+        for (int k = 0; k < mu; k++) {
+            weights[k] /= sum;
+        }
+        // How much of a round's spread goes into the next one
+        double learningRate = 0.3;
+
+        double[] mean = new double[parameters.length];
+        double[] sigma = new double[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            mean[i] = parameters[i].defaultValue;
+            sigma[i] = (highs[i] - lows[i]) / 4.0;
+        }
+
+        List<Candidate> all = new ArrayList<>(evaluate(List.of(Tunable.defaults(parameters))));
+        for (int g = 0; g < generations; g++) {
+            List<int[]> points = new ArrayList<>();
+            for (int k = 0; k < lambda; k++) {
+                int[] values = Tunable.defaults(parameters);
+                for (int i = 0; i < parameters.length; i++) {
+                    if (searched[i]) values[i] = clamp(mean[i] + sigma[i] * gaussian(random), i);
+                }
+                points.add(values);
+            }
+            List<Candidate> round = evaluate(points);
+            all.addAll(round);
+            round.sort(Comparator.comparingDouble(Candidate::getWinRate).reversed());
+
+            for (int i = 0; i < parameters.length; i++) {
+                if (!searched[i]) continue;
+                double newMean = 0;
+                double spread = 0;
+                for (int k = 0; k < mu; k++) {
+                    double value = round.get(k).values[i];
+                    newMean += weights[k] * value;
+                    spread += weights[k] * (value - mean[i]) * (value - mean[i]);
+                }
+                mean[i] = newMean;
+                // Never below half a step, whole numbers would stop moving
+                sigma[i] = Math.max(steps[i] / 2.0, Math.sqrt((1 - learningRate) * sigma[i] * sigma[i] + learningRate * spread));
+            }
+        }
+        return all;
+    }
+
+    // Plays the search games of every set not played yet, all on the pool at once
+    private List<Candidate> evaluate(List<int[]> points) {
+        List<Candidate> candidates = new ArrayList<>();
+        List<Candidate> toPlay = new ArrayList<>();
+        for (int[] values : points) {
+            Candidate candidate = evaluated.get(Arrays.toString(values));
+            if (candidate == null) {
+                candidate = new Candidate(values);
+                evaluated.put(Arrays.toString(values), candidate);
+                toPlay.add(candidate);
+            }
+            candidates.add(candidate);
+        }
+        play(toPlay, 0, gamesPerCandidate);
+        return candidates;
+    }
+
+    // Plays games [first, first + games) for every candidate and adds them to its wins. Rotation
+    // r plays its own slice of the game numbers with the table moved r seats, so no one keeps the
+    // same seat.
+    private void play(List<Candidate> candidates, int first, int games) {
+        int tableSize = opponents.length + 1;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+        try {
+            List<Candidate> owners = new ArrayList<>();
+            List<Future<Integer>> jobs = new ArrayList<>();
+            for (Candidate candidate : candidates) {
+                for (int r = 0; r < tableSize; r++) {
+                    int seat = (tableSize - r) % tableSize;
+                    int from = first + (int) ((long) games * r / tableSize);
+                    int to = first + (int) ((long) games * (r + 1) / tableSize);
+                    for (int chunk = from; chunk < to; chunk += CHUNK) {
+                        int start = chunk;
+                        int end = Math.min(to, chunk + CHUNK);
+                        owners.add(candidate);
+                        jobs.add(pool.submit(() -> play(candidate.values, seat, start, end)));
+                    }
+                }
+            }
+            for (int i = 0; i < jobs.size(); i++) {
+                owners.get(i).wins += jobs.get(i).get();
+            }
+            for (Candidate candidate : candidates) {
+                candidate.games += games;
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Optimizer job failed", e);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // Plays games [from, to) with the tuned player at `seat` on the calling thread, returns its wins
+    private int play(int[] values, int seat, int from, int to) {
+        String[] names = new String[opponents.length + 1];
+        for (int j = 0, o = 0; j < names.length; j++) {
+            names[j] = j == seat ? tuned : opponents[o++];
+        }
+
+        // Pausing 1 never pauses, same as BatchRunner
+        GameEngine engine = new GameEngine(names.length, names, to - from, GameIntervals.OVERALL, 1, 1, s -> {});
+        engine.setPlayerFactory(seat, () -> {
+            Player player = PlayerRegistry.get().getFactory(tuned).get();
+            ((Tunable) player).setParameters(values);
+            return player;
+        });
+        engine.setSeed(masterSeed);
+        engine.setFirstGame(from);
+        // Only wins count here
+        engine.setCollectStats(false);
+        int[] results = engine.run();
+        gamesDone.addAndGet(to - from);
+        return results[seat];
+    }
+
+    private int clamp(double value, int i) {
+        int step = (int) Math.round((value - lows[i]) / steps[i]);
+        return Math.max(lows[i], Math.min(highs[i], lows[i] + step * steps[i]));
+    }
+
+    // Standard normal, Box-Muller
+    private static double gaussian(SplittableRandom random) {
+        return Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+
+    // "name=value,..." of the searched parameters, or all of them
+    public String describe(int[] values, boolean all) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < parameters.length; i++) {
+            if (!all && !searched[i]) continue;
+            if (text.length() > 0) text.append(',');
+            text.append(parameters[i].name).append('=').append(values[i]);
+        }
+        return text.toString();
+    }
+
+    private String names() {
+        List<String> names = new ArrayList<>();
+        for (Tunable.Parameter parameter : parameters) {
+            names.add(parameter.name + " (" + parameter.defaultValue + ", " + parameter.min + "-" + parameter.max + ")");
+        }
+        return String.join(", ", names);
+    }
+
+    // Lines for the results: the best candidates of the search, then the best and the defaults
+    // again on `checkGames` games none of them played yet
+    public List<String> report(List<Candidate> candidates, String search, int checkGames) {
+        List<Candidate> ranked = new ArrayList<>(candidates);
+        ranked.sort(Comparator.comparingDouble(Candidate::getWinRate).reversed());
+        List<Candidate> distinct = new ArrayList<>();
+        for (Candidate candidate : ranked) {
+            if (!distinct.contains(candidate)) distinct.add(candidate);
+        }
+
+        List<String> lines = new ArrayList<>();
+        lines.add("Seed: " + masterSeed);
+        lines.add("Tuning " + tuned + " against " + String.join(", ", opponents) + " by " + search + ", "
+                + distinct.size() + " candidates of " + gamesPerCandidate + " games");
+        lines.add("");
+        lines.add(String.format(Locale.ROOT, "%-4s %16s  %s", "", "win rate (95%)", "parameters"));
+        for (int rank = 0; rank < Math.min(10, distinct.size()); rank++) {
+            Candidate candidate = distinct.get(rank);
+            lines.add(String.format(Locale.ROOT, "#%-3d %7.2f%% +/-%.2f  %s", rank + 1, 100 * candidate.getWinRate(), 100 * candidate.getConfidence(), describe(candidate.values, false)));
+        }
+
+        if (checkGames > 0 && !distinct.isEmpty()) {
+            // Fresh game numbers, so the best doesn't get the games it was picked on
+            Candidate best = new Candidate(distinct.get(0).values);
+            Candidate defaults = new Candidate(Tunable.defaults(parameters));
+            play(List.of(best, defaults), gamesPerCandidate, checkGames);
+            lines.add("");
+            lines.add("On " + checkGames + " new games:");
+            lines.add(String.format(Locale.ROOT, "  best      %7.2f%% +/-%.2f", 100 * best.getWinRate(), 100 * best.getConfidence()));
+            lines.add(String.format(Locale.ROOT, "  defaults  %7.2f%% +/-%.2f", 100 * defaults.getWinRate(), 100 * defaults.getConfidence()));
+        }
+        lines.add("");
+        lines.add("Best: -Dkot.tune." + tuned + "=" + describe(distinct.get(0).values, true));
+        return lines;
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+
+        String tuned = null;
+        String search = "random";
+        int candidates = 50;
+        int generations = 10;
+        int gamesPerCandidate = 20_000;
+        Integer checkGames = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Long seed = null;
+        String outFile = null;
+        List<String> ranges = new ArrayList<>();
+        List<String> opponents = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--tune":
+                        tuned = args[++i];
+                        break;
+                    case "--search":
+                        search = args[++i];
+                        break;
+                    case "--candidates":
+                        candidates = Integer.parseInt(args[++i]);
+                        break;
+                    case "--generations":
+                        generations = Integer.parseInt(args[++i]);
+                        break;
+                    case "--games":
+                        gamesPerCandidate = Integer.parseInt(args[++i]);
+                        break;
+                    case "--check":
+                        checkGames = Integer.parseInt(args[++i]);
+                        break;
+                    case "--param":
+                        ranges.add(args[++i]);
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "--seed":
+                        seed = Long.parseLong(args[++i]);
+                        break;
+                    case "--out":
+                        outFile = args[++i];
+                        break;
+                    case "--help":
+                        usage(null);
+                        return;
+                    default:
+                        if (args[i].startsWith("--")) throw new IllegalArgumentException("Unknown option " + args[i]);
+                        opponents.add(args[i]);
+                }
+            }
+            if (tuned == null) throw new IllegalArgumentException("Say which player to tune with --tune");
+            if (gamesPerCandidate <= 0 || candidates <= 0 || generations <= 0) throw new IllegalArgumentException("Please enter positive numbers");
+
+            StrategyOptimizer optimizer = new StrategyOptimizer(tuned, opponents, gamesPerCandidate, threads);
+            if (seed != null) optimizer.setSeed(seed);
+            for (String range : ranges) {
+                // name=low:high[:step]
+                String[] parts = range.split("[=:]");
+                if (parts.length < 3 || parts.length > 4) throw new IllegalArgumentException("--param needs name=low:high[:step], got " + range);
+                optimizer.setRange(parts[0], Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), parts.length == 4 ? Integer.parseInt(parts[3]) : 1);
+            }
+            if (ranges.isEmpty()) {
+                if (search.equals("grid")) throw new IllegalArgumentException("A grid needs --param ranges");
+                optimizer.searchAll();
+            }
+
+            PrintStream out = System.out;
+            if (outFile != null) out = new PrintStream(new FileOutputStream(outFile), false);
+
+            long start = System.nanoTime();
+            List<Candidate> result;
+            switch (search) {
+                case "grid":
+                    result = optimizer.grid();
+                    break;
+                case "random":
+                    result = optimizer.random(candidates);
+                    break;
+                case "cma":
+                    result = optimizer.evolve(generations, candidates);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown search " + search);
+            }
+            List<String> report = optimizer.report(result, search, checkGames != null ? checkGames : gamesPerCandidate);
+            System.err.printf(Locale.ROOT, "Done in %.1f s, %d games%n", (System.nanoTime() - start) / 1e9, optimizer.getGamesDone());
+
+            for (String line : report) {
+                out.println(line);
+            }
+            out.flush();
+            if (out != System.out) out.close();
+        } catch (ArrayIndexOutOfBoundsException e) {
+            usage("Missing value for " + args[args.length - 1]);
+        } catch (FileNotFoundException e) {
+            System.err.println("Can not write to " + outFile + ": " + e.getMessage());
+            System.exit(1);
+        } catch (IllegalArgumentException e) {
+            usage(e.getMessage());
+        }
+    }
+
+    private static void usage(String error) {
+        if (error != null) System.err.println("Error: " + error);
+        System.err.println("Usage: StrategyOptimizer --tune Player [--search grid|random|cma] [--param name=low:high[:step]]... [--candidates N] [--generations N] [--games N] [--check N] [--threads N] [--seed N] [--out FILE] Opponent [...Opponent5]");
+        if (error != null) System.exit(2);
+    }
+}
@@ -1,5 +1,3 @@
-import players.Player;
-
 import javax.swing.*;
 import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.DefaultTableModel;
@@ -9,6 +7,14 @@ import java.awt.event.ActionListener;
 import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.DateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 // TODO: Maybe add row deletion
 // TODO: Fix Players Table Resizing weirdness
@@ -34,6 +40,12 @@ public class SwingGUI {
     JComboBox<String> oPauseBetweenGamesC;
     JLabel oNumOfGamesL;
     JTextField oNumOfGamesT;
+    JLabel oThreadsL;
+    JComboBox<Integer> oThreadsC;
+    JLabel oStopAtL;
+    JComboBox<String> oStopAtC;
+    JLabel oCheckpointL;
+    JCheckBox oCheckpointC;
     JButton playButton;
 
     JLabel kotLogo;
@@ -48,6 +60,9 @@ public class SwingGUI {
     // Results Window
     static JPanelWithBg resPanel;
 
+    static final String[] STOP_AT_LABELS = {"all games", "+/-1%", "+/-0.5%", "+/-0.25%"};
+    static final double[] STOP_AT_PRECISION = {0, 0.01, 0.005, 0.0025};
+
     static int windowWidth = 950;
     static int windowHeight = 600;
     final static String pathPrefix = "D:/Code_Projects/AOOD-KOTUI-2024/src/";
@@ -106,7 +121,7 @@ public class SwingGUI {
         tableScrollPane.setPreferredSize(new Dimension(windowWidth / 3, calculateTableHeight(playersTable.getRowCount()) + 3));
         tablePanel.add(tableScrollPane, BorderLayout.CENTER);
 
-        editInstructionLabel = new JTextArea("Double click on player type cell to edit\nEnter the name of the desired Java file without the \".java\"");
+        editInstructionLabel = new JTextArea("Double click on player type cell to edit\nPick a player or enter the name of the desired Java file without the \".java\"");
         editInstructionLabel.setFont(new Font("Arial", Font.PLAIN, 14));
         editInstructionLabel.setEditable(false);
         editInstructionLabel.setLineWrap(true);
@@ -196,6 +211,45 @@ public class SwingGUI {
         gbc.gridx = 1;
         options.add(oNumOfGamesT, gbc);
 
+        oThreadsL = new JLabel("Threads:");
+        oThreadsL.setForeground(Color.WHITE);
+        gbc.gridx = 0;
+        gbc.gridy = 5;
+        options.add(oThreadsL, gbc);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        oThreadsC = new JComboBox<>();
+        for (int i = 1; i <= cores; i++) {
+            oThreadsC.addItem(i);
+        }
+        oThreadsC.setSelectedIndex(cores - 1);
+        gbc.gridx = 1;
+        options.add(oThreadsC, gbc);
+
+        // Stops once every win rate is that precise, the number of games becomes the most it plays
+        oStopAtL = new JLabel("Stop at:");
+        oStopAtL.setForeground(Color.WHITE);
+        gbc.gridx = 0;
+        gbc.gridy = 6;
+        options.add(oStopAtL, gbc);
+
+        oStopAtC = new JComboBox<>(STOP_AT_LABELS);
+        gbc.gridx = 1;
+        options.add(oStopAtC, gbc);
+
+        // Saves where a long run got to, so one cut short by closing the window can go on later
+        oCheckpointL = new JLabel("Save progress:");
+        oCheckpointL.setForeground(Color.WHITE);
+        gbc.gridx = 0;
+        gbc.gridy = 7;
+        options.add(oCheckpointL, gbc);
+
+        oCheckpointC = new JCheckBox();
+        oCheckpointC.setOpaque(false);
+        oCheckpointC.setToolTipText("Not used when stopping early");
+        gbc.gridx = 1;
+        options.add(oCheckpointC, gbc);
+
         playButton = new JButton("PLAY");
         playButton.setOpaque(false);
         playButton.setContentAreaFilled(false);
@@ -206,7 +260,7 @@ public class SwingGUI {
         playButton.addActionListener(new playButtonClick());
 
         gbc.gridx = 0;
-        gbc.gridy = 5;
+        gbc.gridy = 8;
         gbc.gridwidth = 2;
         gbc.fill = GridBagConstraints.HORIZONTAL;
         options.add(playButton, gbc);
@@ -247,6 +301,7 @@ public class SwingGUI {
         for (int i = 0; i < playersTable.getColumnCount(); i++) {
             playersTable.getColumnModel().getColumn(i).setCellRenderer(centerRenderer);
         }
+        setPlayerTypeEditor();
     }
 
     private void reconfigureTable(int rows) {
@@ -280,56 +335,74 @@ public class SwingGUI {
         for (int i = 0; i < playersTable.getColumnCount(); i++) {
             playersTable.getColumnModel().getColumn(i).setCellRenderer(centerRenderer);
         }
+        setPlayerTypeEditor();
 
         tableScrollPane.setPreferredSize(new Dimension(windowWidth / 3, calculateTableHeight(playersTable.getRowCount()) + 3));
         frame.revalidate();
         frame.repaint();
     }
 
-    private boolean checkFilesInPlayersFolder() {
-        String playersFolderPath = pathPrefix + "/players/";
+    // Offers every registered player in a drop-down, typing any other name still works
+    private void setPlayerTypeEditor() {
+        JComboBox<String> playerTypes = new JComboBox<>(PlayerRegistry.get().getNames().toArray(new String[0]));
+        playerTypes.setEditable(true);
+        playersTable.getColumnModel().getColumn(1).setCellEditor(new DefaultCellEditor(playerTypes));
+    }
+
+    private boolean checkPlayers() {
+        PlayerRegistry registry = PlayerRegistry.get();
 
         for (int i = 0; i < playersTable.getRowCount(); i++) {
-            if (playersTable.getValueAt(i, 1).toString().isBlank()) {
+            String name = playersTable.getValueAt(i, 1).toString().trim();
+            if (name.isBlank()) {
                 JOptionPane.showMessageDialog(frame, "Can not have empty cells", "Error", JOptionPane.ERROR_MESSAGE);
                 return false;
             }
 
-            String fileName = playersTable.getValueAt(i, 1) + ".java";
-            File file = new File(playersFolderPath + fileName);
-
-            if (fileName.equalsIgnoreCase("player.java")) {
+            if (name.equalsIgnoreCase("player")) {
                 JOptionPane.showMessageDialog(frame, "Can not play with Player.java", "Error", JOptionPane.ERROR_MESSAGE);
                 return false;
             }
 
-            if (!file.exists() || file.isDirectory()) {
-                System.out.println("File not found: " + fileName);
-                JOptionPane.showMessageDialog(frame, "File not found: " + fileName, "Error", JOptionPane.ERROR_MESSAGE);
+            if (!name.startsWith("Player")) {
+                JOptionPane.showMessageDialog(frame, "File " + name + ".java does not follow naming convention for Player subclasses.", "Error", JOptionPane.ERROR_MESSAGE);
                 return false;
             }
 
-            if (!fileName.startsWith("Player")) {
-                JOptionPane.showMessageDialog(frame, "File " + fileName + " does not follow naming convention for Player subclasses.", "Error", JOptionPane.ERROR_MESSAGE);
+            String problem = registry.getProblem(name);
+            if (problem != null) {
+                JOptionPane.showMessageDialog(frame, problem, "Error", JOptionPane.ERROR_MESSAGE);
                 return false;
             }
-
-             try {
-                 Class playerClass = Class.forName("players." + playersTable.getValueAt(i, 1));
-
-                 if (!Player.class.isAssignableFrom(playerClass)) {
-                     JOptionPane.showMessageDialog(frame, fileName + " is not of type Player", "Error", JOptionPane.ERROR_MESSAGE);
-                     return false;
-                 }
-             } catch (ClassNotFoundException e) {
-                 JOptionPane.showMessageDialog(frame, "Error loading " + fileName + " class.", "Error", JOptionPane.ERROR_MESSAGE);
-                 return false;
-             }
         }
 
         return true;
     }
 
+    // If a run of the same players and games was saved unfinished, asks whether to go on from it
+    // and deletes it if not. False if the user cancelled.
+    private boolean askToResume(Path checkpoint) {
+        if (!Files.exists(checkpoint)) return true;
+
+        String saved;
+        try {
+            saved = DateFormat.getDateTimeInstance().format(new Date(Files.getLastModifiedTime(checkpoint).toMillis()));
+        } catch (IOException e) {
+            saved = "an earlier run";
+        }
+        int answer = JOptionPane.showConfirmDialog(frame, "A run of these players and games was saved unfinished (" + saved + ").\nGo on from there? No starts over and deletes it.", "Resume", JOptionPane.YES_NO_CANCEL_OPTION);
+        if (answer == JOptionPane.YES_OPTION) return true;
+        if (answer != JOptionPane.NO_OPTION) return false;
+
+        try {
+            Files.delete(checkpoint);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(frame, "Could not delete " + checkpoint + ": " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            return false;
+        }
+        return true;
+    }
+
     // Utility methods
     private int calculateTableHeight(int numberOfRows) {
         final int rowHeight = 40;
@@ -379,30 +452,58 @@ public class SwingGUI {
                 }
             }
 
-            boolean res = checkFilesInPlayersFolder();
+            boolean res = checkPlayers();
 
             if (res) {
                 int numOfPlayers = oNumOfPlayersC.getSelectedIndex() + 2;
                 int reportResults = oReportResultsC.getSelectedIndex();
                 int pausing = oPauseBetweenGamesC.getSelectedIndex();
+                int threads = (Integer) oThreadsC.getSelectedItem();
 
                 String[] players = new String[numOfPlayers];
 
                 for (int i = 0; i < playersTable.getRowCount(); i++) {
-                    players[i] = playersTable.getValueAt(i, 1).toString();
+                    players[i] = playersTable.getValueAt(i, 1).toString().trim();
+                }
+
+                double precision = STOP_AT_PRECISION[oStopAtC.getSelectedIndex()];
+                Path checkpoint = null;
+                if (oCheckpointC.isSelected() && precision == 0) {
+                    checkpoint = Checkpoint.fileFor(players, numOfGames);
+                    if (!askToResume(checkpoint)) return;
                 }
 
                 Results r = new Results();
 
-                new GameEngine(numOfPlayers, players, numOfGames, reportResults, pausing, r);
+                GameEngine engine = new GameEngine(numOfPlayers, players, numOfGames, reportResults, pausing, threads, r);
+                if (precision > 0) engine.setStoppingRule(StoppingRule.precision(precision));
+                if (checkpoint != null) engine.setCheckpoint(checkpoint, Checkpoint.DEFAULT_INTERVAL_MILLIS);
+                engine.start();
             }
         }
     }
 
     // Results Window
-    static class Results {
-        private JTextArea resultsText;
-        String logged = "";
+    static class Results implements GameLogger {
+        // How many lines the results view keeps, the rest only goes to the transcript file
+        static final int MAX_LOG_LINES = Integer.getInteger("kot.logLines", 5000);
+
+        // How often the results view is refreshed while games are running
+        static final int REFRESH_MS = 75;
+
+        private BoundedLogArea resultsText;
+        private JLabel transcriptLabel;
+        private JProgressBar progressBar;
+        private JLabel speedLabel;
+        private boolean started = false;
+
+        // Filled by the game threads, emptied by refreshTimer on the EDT
+        private final ConcurrentLinkedQueue<List<String>> pending = new ConcurrentLinkedQueue<>();
+        private volatile long gamesDone = 0;
+        private volatile long totalGames = 0;
+        private volatile boolean finished = false;
+        private final long startTime = System.nanoTime();
+        private final Timer refreshTimer = new Timer(REFRESH_MS, e -> refresh());
 
         public Results() {
             frame.setTitle("Output - King of Tokyo GUI");
@@ -433,10 +534,25 @@ public class SwingGUI {
             resultsLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
             resultsPanel.add(resultsLabel);
 
-            resultsText = new JTextArea();
+            progressBar = new JProgressBar(0, 1000);
+            progressBar.setStringPainted(true);
+            progressBar.setMaximumSize(new Dimension(560, 18));
+            progressBar.setAlignmentX(Component.CENTER_ALIGNMENT);
+            resultsPanel.add(Box.createRigidArea(new Dimension(0, 5)));
+            resultsPanel.add(progressBar);
+
+            speedLabel = new JLabel(" ");
+            speedLabel.setFont(new Font("SansSerif", Font.PLAIN, 12));
+            speedLabel.setForeground(Color.WHITE);
+            speedLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+            resultsPanel.add(speedLabel);
+
+            resultsText = new BoundedLogArea(MAX_LOG_LINES);
+            resultsText.spillTo(new File(System.getProperty("java.io.tmpdir"), "kot-transcript-" + System.currentTimeMillis() + ".log"));
             resultsText.setLineWrap(true);
             resultsText.setText("Waiting for output from game...");
-            resultsText.setFont(new Font("SansSerif", Font.PLAIN, 14));
+            // Monospaced so the stats table lines up
+            resultsText.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 13));
             resultsText.setForeground(Color.WHITE);
             resultsText.setBackground(new Color(0, 0, 0, 0));
             resultsText.setOpaque(false);
@@ -451,6 +567,12 @@ public class SwingGUI {
             resultsPanel.add(Box.createRigidArea(new Dimension(0, 10)));
             resultsPanel.add(scrollPane);
 
+            transcriptLabel = new JLabel(" ");
+            transcriptLabel.setFont(new Font("SansSerif", Font.PLAIN, 11));
+            transcriptLabel.setForeground(Color.WHITE);
+            transcriptLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+            resultsPanel.add(transcriptLabel);
+
             centerWrapperPanel.add(resultsPanel);
 
             JButton goBack = new JButton("PLAY AGAIN");
@@ -466,6 +588,8 @@ public class SwingGUI {
             goBack.addActionListener(new ActionListener() {
                 @Override
                 public void actionPerformed(ActionEvent e) {
+                    refreshTimer.stop();
+                    resultsText.closeTranscript();
                     frame.setTitle("Home - King of Tokyo GUI");
                     resPanel.removeAll();
                     resPanel.revalidate();
@@ -495,12 +619,75 @@ public class SwingGUI {
 
             goBack.setIcon(scaleImage("assets/playAgainButton.png", goBack.getWidth() + 75, 598, 195));
             goBack.setText("");
+
+            refreshTimer.start();
         }
 
+        // The engine logs from its own threads. Those only queue the lines, the EDT picks them up
+        // every REFRESH_MS in one batch, so the game threads never wait on the UI.
+        @Override
         public void log(String s) {
-            logged += s + "\n";
-            resultsText.setText(logged);
-            resultsText.setCaretPosition(resultsText.getDocument().getLength());
+            pending.add(List.of(s));
+        }
+
+        @Override
+        public void log(List<String> lines) {
+            pending.add(lines);
+        }
+
+        @Override
+        public void progress(long gamesDone, long totalGames) {
+            // Only the latest count matters, so no need to queue these
+            this.totalGames = totalGames;
+            this.gamesDone = gamesDone;
+        }
+
+        @Override
+        public void finished() {
+            finished = true;
+        }
+
+        private void refresh() {
+            // Read the flag first so lines logged right before finishing are still drained
+            boolean done = finished;
+
+            List<String> batch = new ArrayList<>();
+            List<String> lines;
+            while ((lines = pending.poll()) != null) {
+                batch.addAll(lines);
+            }
+            append(batch);
+            updateProgress();
+
+            if (done) refreshTimer.stop();
+        }
+
+        private void append(List<String> lines) {
+            if (lines.isEmpty()) return;
+            if (!started) {
+                // Get rid of the "Waiting for output" placeholder
+                resultsText.setText("");
+                started = true;
+            }
+            resultsText.appendLines(lines);
+
+            if (resultsText.getTranscriptProblem() != null) {
+                transcriptLabel.setText(resultsText.getTranscriptProblem());
+            } else if (resultsText.isTrimmed() && resultsText.getTranscriptFile() != null) {
+                transcriptLabel.setText("Showing the last " + MAX_LOG_LINES + " lines, full log: " + resultsText.getTranscriptFile());
+            }
+        }
+
+        private void updateProgress() {
+            long done = gamesDone;
+            long total = totalGames;
+            if (total == 0) return;
+
+            progressBar.setValue((int) (done * 1000 / total));
+            progressBar.setString(done + " / " + total + " games");
+
+            double seconds = (System.nanoTime() - startTime) / 1e9;
+            if (seconds > 0) speedLabel.setText(String.format("%,.0f games/sec", done / seconds));
         }
     }
 }
\ No newline at end of file
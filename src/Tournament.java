@@ -0,0 +1,298 @@
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import players.ExplicitOnly;
+
+// Round robin between strategies: every table of `tableSize` strategies (every pair by default)
+// plays `gamesPerMatchup` games, spread evenly over every rotation of the seats so no strategy
+// keeps the same seat. All matchups are cut into chunks that share one worker pool, and every
+// matchup plays the same game numbers with the same master seed, so they all get the same dice.
+//
+//   java -Djava.awt.headless=true Tournament --games 100000 --table 2 [--threads N] [--seed N] [Player...]
+// Without players every player in the PlayerRegistry that can be created takes part, except
+// the ExplicitOnly ones (searching and external players), those have to be named.
+public class Tournament {
+    // Most games one job plays, small enough to keep every thread busy until the end
+    private static final int CHUNK = 10_000;
+
+    private final String[] strategies;
+    private final int tableSize;
+    private final int gamesPerMatchup;
+    private final int threads;
+    private long masterSeed = XoshiroDice.mix64(System.nanoTime());
+
+    // wins[a][b] is how often a won at a table b was also at, games[a][b] how many games that was.
+    // The diagonal holds a's totals over all its games.
+    private final long[][] wins;
+    private final long[][] games;
+    private final AtomicLong gamesDone = new AtomicLong();
+
+    public Tournament(List<String> strategies, int tableSize, int gamesPerMatchup, int threads) {
+        if (tableSize < 2 || tableSize > 6) throw new IllegalArgumentException("Tables need between 2 and 6 players");
+        if (strategies.size() < tableSize) throw new IllegalArgumentException("Need at least " + tableSize + " strategies for tables of " + tableSize);
+        for (String name : strategies) {
+            PlayerRegistry.get().getFactory(name);
+        }
+
+        this.strategies = strategies.toArray(new String[0]);
+        this.tableSize = tableSize;
+        this.gamesPerMatchup = gamesPerMatchup;
+        this.threads = Math.max(1, threads);
+        wins = new long[this.strategies.length][this.strategies.length];
+        games = new long[this.strategies.length][this.strategies.length];
+    }
+
+    public void setSeed(long masterSeed) {
+        this.masterSeed = masterSeed;
+    }
+
+    public long getSeed() {
+        return masterSeed;
+    }
+
+    public int getNumOfMatchups() {
+        return matchups().size();
+    }
+
+    public long getTotalGames() {
+        return (long) getNumOfMatchups() * gamesPerMatchup;
+    }
+
+    // Games played so far, safe to call from any thread while the tournament runs
+    public long getGamesDone() {
+        return gamesDone.get();
+    }
+
+    public void run() {
+        List<int[]> matchups = matchups();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+        try {
+            List<int[]> seatings = new ArrayList<>();
+            List<Future<int[]>> jobs = new ArrayList<>();
+            for (int[] matchup : matchups) {
+                // Rotation r plays its own slice of the game numbers with everyone moved r seats
+                for (int r = 0; r < tableSize; r++) {
+                    int[] seating = new int[tableSize];
+                    for (int j = 0; j < tableSize; j++) {
+                        seating[j] = matchup[(j + r) % tableSize];
+                    }
+                    int from = (int) ((long) gamesPerMatchup * r / tableSize);
+                    int to = (int) ((long) gamesPerMatchup * (r + 1) / tableSize);
+                    for (int chunk = from; chunk < to; chunk += CHUNK) {
+                        int first = chunk;
+                        int last = Math.min(to, chunk + CHUNK);
+                        seatings.add(seating);
+                        jobs.add(pool.submit(() -> play(seating, first, last)));
+                    }
+                }
+            }
+
+            for (int i = 0; i < jobs.size(); i++) {
+                add(seatings.get(i), jobs.get(i).get());
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Tournament job failed", e);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // Plays games [from, to) of one seating on the calling thread
+    private int[] play(int[] seating, int from, int to) {
+        String[] names = new String[seating.length];
+        for (int j = 0; j < seating.length; j++) {
+            names[j] = strategies[seating[j]];
+        }
+
+        // Pausing 1 never pauses, same as BatchRunner
+        GameEngine engine = new GameEngine(names.length, names, to - from, GameIntervals.OVERALL, 1, 1, s -> {});
+        engine.setSeed(masterSeed);
+        engine.setFirstGame(from);
+        // The tournament only reports wins
+        engine.setCollectStats(false);
+        int[] results = engine.run();
+        gamesDone.addAndGet(to - from);
+        return results;
+    }
+
+    private void add(int[] seating, int[] results) {
+        int played = 0;
+        for (int result : results) {
+            played += result;
+        }
+        for (int a = 0; a < seating.length; a++) {
+            for (int b = 0; b < seating.length; b++) {
+                wins[seating[a]][seating[b]] += results[a];
+                games[seating[a]][seating[b]] += played;
+            }
+        }
+    }
+
+    // Every combination of tableSize strategies, in order
+    private List<int[]> matchups() {
+        List<int[]> matchups = new ArrayList<>();
+        int[] table = new int[tableSize];
+        for (int j = 0; j < tableSize; j++) {
+            table[j] = j;
+        }
+        while (true) {
+            matchups.add(table.clone());
+            int j = tableSize - 1;
+            while (j >= 0 && table[j] == strategies.length - tableSize + j) j--;
+            if (j < 0) return matchups;
+            table[j]++;
+            for (int k = j + 1; k < tableSize; k++) {
+                table[k] = table[k - 1] + 1;
+            }
+        }
+    }
+
+    // Getters
+    public String[] getStrategies() {
+        return strategies.clone();
+    }
+
+    // How often strategy a won the games it played with strategy b at the table
+    public double getWinRate(int a, int b) {
+        return games[a][b] == 0 ? 0 : (double) wins[a][b] / games[a][b];
+    }
+
+    // Half the width of the 95% Wilson score interval around getWinRate(a, b)
+    public double getConfidence(int a, int b) {
+        return StoppingRule.wilson(wins[a][b], games[a][b])[1];
+    }
+
+    // Lines for the results: the overall ranking and the win-rate matrix
+    public List<String> report() {
+        List<String> lines = new ArrayList<>();
+        int n = strategies.length;
+        lines.add("Seed: " + masterSeed);
+        lines.add(getNumOfMatchups() + " matchups of " + tableSize + " players, " + gamesPerMatchup + " games each");
+        lines.add("");
+
+        // Overall ranking by win rate over every game a strategy played
+        Integer[] order = new Integer[n];
+        for (int a = 0; a < n; a++) {
+            order[a] = a;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(getWinRate(b, b), getWinRate(a, a)));
+        lines.add(String.format(Locale.ROOT, "%-4s %-32s %10s %16s", "", "Strategy", "games", "win rate (95%)"));
+        for (int rank = 0; rank < n; rank++) {
+            int a = order[rank];
+            lines.add(String.format(Locale.ROOT, "#%-3d %-32s %10d %8.2f%% +/-%.2f", a + 1, strategies[a], games[a][a], 100 * getWinRate(a, a), 100 * getConfidence(a, a)));
+        }
+
+        lines.add("");
+        lines.add("Row strategy's win rate (%) in games with the column strategy at the table:");
+        StringBuilder header = new StringBuilder(String.format(Locale.ROOT, "%-4s", ""));
+        for (int b = 0; b < n; b++) {
+            header.append(String.format(Locale.ROOT, " %13s", "#" + (b + 1)));
+        }
+        lines.add(header.toString());
+        for (int a = 0; a < n; a++) {
+            StringBuilder row = new StringBuilder(String.format(Locale.ROOT, "#%-3d", a + 1));
+            for (int b = 0; b < n; b++) {
+                if (a == b) row.append(String.format(Locale.ROOT, " %13s", "-"));
+                else row.append(String.format(Locale.ROOT, " %6.2f+/-%5.2f", 100 * getWinRate(a, b), 100 * getConfidence(a, b)));
+            }
+            lines.add(row.toString());
+        }
+        return lines;
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+
+        int gamesPerMatchup = 100_000;
+        int tableSize = 2;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Long seed = null;
+        String outFile = null;
+        List<String> strategies = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--games":
+                        gamesPerMatchup = Integer.parseInt(args[++i]);
+                        break;
+                    case "--table":
+                        tableSize = Integer.parseInt(args[++i]);
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "--seed":
+                        seed = Long.parseLong(args[++i]);
+                        break;
+                    case "--out":
+                        outFile = args[++i];
+                        break;
+                    case "--help":
+                        usage(null);
+                        return;
+                    default:
+                        if (args[i].startsWith("--")) throw new IllegalArgumentException("Unknown option " + args[i]);
+                        strategies.add(args[i]);
+                }
+            }
+            if (gamesPerMatchup <= 0) throw new IllegalArgumentException("Please enter a positive number of games");
+            if (strategies.isEmpty()) {
+                // Every player that can be set up here, e.g. PlayerExternalBot needs its command
+                for (String name : PlayerRegistry.get().getNames()) {
+                    if (ExplicitOnly.class.isAssignableFrom(PlayerRegistry.get().getType(name))) {
+                        System.err.println("Leaving out " + name + ", name it to include it");
+                        continue;
+                    }
+                    try {
+                        PlayerRegistry.get().getFactory(name).get();
+                        strategies.add(name);
+                    } catch (IllegalStateException e) {
+                        System.err.println("Leaving out " + name + ": " + e.getMessage());
+                    }
+                }
+            }
+
+            Tournament tournament = new Tournament(strategies, tableSize, gamesPerMatchup, threads);
+            if (seed != null) tournament.setSeed(seed);
+
+            PrintStream out = System.out;
+            if (outFile != null) out = new PrintStream(new FileOutputStream(outFile), false);
+
+            System.err.println("Playing " + tournament.getNumOfMatchups() + " matchups, " + tournament.getTotalGames() + " games on " + threads + " threads");
+            long start = System.nanoTime();
+            tournament.run();
+            System.err.printf(Locale.ROOT, "Done in %.1f s%n", (System.nanoTime() - start) / 1e9);
+
+            for (String line : tournament.report()) {
+                out.println(line);
+            }
+            out.flush();
+            if (out != System.out) out.close();
+        } catch (ArrayIndexOutOfBoundsException e) {
+            usage("Missing value for " + args[args.length - 1]);
+        } catch (FileNotFoundException e) {
+            System.err.println("Can not write to " + outFile + ": " + e.getMessage());
+            System.exit(1);
+        } catch (IllegalArgumentException e) {
+            usage(e.getMessage());
+        }
+    }
+
+    private static void usage(String error) {
+        if (error != null) System.err.println("Error: " + error);
+        System.err.println("Usage: Tournament [--games N] [--table 2-6] [--threads N] [--seed N] [--out FILE] [Player...]");
+        if (error != null) System.exit(2);
+    }
+}
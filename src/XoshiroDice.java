@@ -0,0 +1,58 @@
+// xoshiro256** seeded through SplitMix64. Fast, small, and unlike Math.random() it has no
+// shared state, so every worker can have its own.
+public class XoshiroDice implements DiceSource {
+    private long s0, s1, s2, s3;
+
+    public XoshiroDice() {
+        this(System.nanoTime());
+    }
+
+    public XoshiroDice(long seed) {
+        reseed(seed);
+    }
+
+    @Override
+    public void reseed(long seed) {
+        // Expand the seed with SplitMix64 so similar seeds still give unrelated streams
+        s0 = mix64(seed += 0x9E3779B97F4A7C15L);
+        s1 = mix64(seed += 0x9E3779B97F4A7C15L);
+        s2 = mix64(seed += 0x9E3779B97F4A7C15L);
+        s3 = mix64(seed + 0x9E3779B97F4A7C15L);
+    }
+
+    public long nextLong() {
+        long result = Long.rotateLeft(s1 * 5, 7) * 9;
+        long t = s1 << 17;
+
+        s2 ^= s0;
+        s3 ^= s1;
+        s1 ^= s2;
+        s0 ^= s3;
+        s2 ^= t;
+        s3 = Long.rotateLeft(s3, 45);
+
+        return result;
+    }
+
+    // Lemire's multiply-shift, no floating point and no division on the fast path
+    @Override
+    public int nextInt(int bound) {
+        long m = (nextLong() >>> 32) * bound;
+        long low = m & 0xFFFFFFFFL;
+        if (low < bound) {
+            // Reject the few values that would make some faces slightly more likely
+            long threshold = (0x100000000L - bound) % bound;
+            while (low < threshold) {
+                m = (nextLong() >>> 32) * bound;
+                low = m & 0xFFFFFFFFL;
+            }
+        }
+        return (int) (m >>> 32);
+    }
+
+    static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,144 @@
+package players;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+// One external bot program shared by every PlayerExternalBot of the JVM that runs the same
+// command. Requests from all games go out on its stdin as they come, each with an id, and the
+// answers are matched back by id, so the bot always has work queued and can answer in any order.
+// A writer thread sends whatever has queued up and flushes once per batch, a reader thread hands
+// every answer to the game waiting for it.
+final class BotProcess {
+    private static final Map<String, BotProcess> running = new HashMap<>();
+
+    private final String command;
+    private final Process process;
+    private final LinkedBlockingQueue<String> requests = new LinkedBlockingQueue<>();
+    private final Map<Long, CompletableFuture<String>> waiting = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+    // Why the bot can't be used anymore, null while it runs
+    private volatile String failure;
+
+    private BotProcess(String command) throws IOException {
+        this.command = command;
+        process = new ProcessBuilder(command.trim().split("\\s+"))
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        daemon(this::write, "bot-writer").start();
+        daemon(this::read, "bot-reader").start();
+        Runtime.getRuntime().addShutdownHook(new Thread(process::destroy));
+    }
+
+    // The running bot of `command`, started on first use
+    static synchronized BotProcess of(String command) {
+        BotProcess bot = running.get(command);
+        if (bot == null || bot.failure != null) {
+            try {
+                bot = new BotProcess(command);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not start the bot " + command + ": " + e.getMessage(), e);
+            }
+            running.put(command, bot);
+        }
+        return bot;
+    }
+
+    // Sends "<id> <request>" and waits for the bot's "<id> <answer>", returns the answer
+    String ask(String request, long timeoutMillis) {
+        if (failure != null) throw new IllegalStateException(failure);
+        long id = ids.incrementAndGet();
+        CompletableFuture<String> answer = new CompletableFuture<>();
+        waiting.put(id, answer);
+        requests.add(id + " " + request);
+        // Checked again in case the bot died between the first check and put()
+        if (failure != null) answer.completeExceptionally(new IllegalStateException(failure));
+
+        try {
+            return timeoutMillis > 0 ? answer.get(timeoutMillis, TimeUnit.MILLISECONDS) : answer.get();
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("The bot " + command + " didn't answer within " + timeoutMillis + " ms");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the bot " + command);
+        } finally {
+            waiting.remove(id);
+        }
+    }
+
+    private void write() {
+        List<String> batch = new ArrayList<>();
+        try (Writer out = new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8)) {
+            while (true) {
+                batch.add(requests.take());
+                requests.drainTo(batch);
+                for (String request : batch) {
+                    out.write(request);
+                    out.write('\n');
+                }
+                out.flush();
+                batch.clear();
+            }
+        } catch (IOException e) {
+            fail("Could not write to the bot " + command + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            fail("The bot " + command + " was stopped");
+        }
+    }
+
+    private void read() {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                int space = line.indexOf(' ');
+                long id = -1;
+                try {
+                    if (space > 0) id = Long.parseLong(line.substring(0, space));
+                } catch (NumberFormatException e) {
+                    // Reported below
+                }
+                if (id <= 0 || id > ids.get()) {
+                    fail("The bot " + command + " sent \"" + line + "\", expected \"<id> <answer>\" for an open request");
+                    return;
+                }
+                // Nobody waits for it anymore when the game timed out or was interrupted, the
+                // bot is only late and keeps answering the other games
+                CompletableFuture<String> answer = waiting.get(id);
+                if (answer != null) answer.complete(line.substring(space + 1).trim());
+            }
+            fail("The bot " + command + " exited");
+        } catch (IOException e) {
+            fail("Could not read from the bot " + command + ": " + e.getMessage());
+        }
+    }
+
+    private void fail(String reason) {
+        if (failure == null) failure = reason;
+        for (CompletableFuture<String> answer : waiting.values()) {
+            answer.completeExceptionally(new IllegalStateException(failure));
+        }
+        process.destroy();
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
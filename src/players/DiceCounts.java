@@ -0,0 +1,81 @@
+package players;
+
+// A roll as how many dice show each face, packed 3 bits per face into one int: bits 0-2 count the
+// 1s, bits 3-5 the 2s and so on. Nothing in the score depends on the order of the dice except
+// where the first 6 is, so the engine counts a roll once and scores it from these with a table
+// lookup, and strategies can get the counts from GameView.getDiceCounts() without counting.
+public final class DiceCounts {
+    public static final int BITS = 3;
+    public static final int MASK = (1 << BITS) - 1;
+
+    // Bit in a score that says the roll earns an extra turn
+    public static final int EXTRA_TURN = 1 << 12;
+
+    // SCORES[counts of the 1s-4s] holds the fame three or more 1s, 2s and 3s score, 4 bits per
+    // face, and EXTRA_TURN for three or more 4s
+    private static final short[] SCORES = new short[1 << (4 * BITS)];
+
+    static {
+        for (int counts = 0; counts < SCORES.length; counts++) {
+            int score = 0;
+            for (int face = 1; face <= 3; face++) {
+                int count = count(counts, face);
+                if (count >= 3) score |= (face + count - 3) << (4 * (face - 1));
+            }
+            if (count(counts, 4) >= 3) score |= EXTRA_TURN;
+            SCORES[counts] = (short) score;
+        }
+    }
+
+    private DiceCounts() {}
+
+    // How many dice of `counts` show `face` (1-6)
+    public static int count(int counts, int face) {
+        return (counts >>> (BITS * (face - 1))) & MASK;
+    }
+
+    // `counts` with one more die showing `face`
+    public static int add(int counts, int face) {
+        return counts + (1 << (BITS * (face - 1)));
+    }
+
+    // Counts of the given faces, dice that weren't rolled yet (0) don't count
+    public static int of(int[] dice) {
+        int counts = 0;
+        for (int die : dice) {
+            if (die > 0) counts = add(counts, die);
+        }
+        return counts;
+    }
+
+    public static int of(GameView view) {
+        int counts = 0;
+        for (int i = 0; i < view.getNumOfDice(); i++) {
+            int die = view.getDie(i);
+            if (die > 0) counts = add(counts, die);
+        }
+        return counts;
+    }
+
+    public static int total(int counts) {
+        int total = 0;
+        for (int face = 1; face <= 6; face++) {
+            total += count(counts, face);
+        }
+        return total;
+    }
+
+    // What the 1s-4s of a roll score, read it with fame() and extraTurn()
+    public static int score(int counts) {
+        return SCORES[counts & ((1 << (4 * BITS)) - 1)];
+    }
+
+    // Fame a score gives for three or more of `face` (1-3)
+    public static int fame(int score, int face) {
+        return (score >>> (4 * (face - 1))) & 0xF;
+    }
+
+    public static boolean extraTurn(int score) {
+        return (score & EXTRA_TURN) != 0;
+    }
+}
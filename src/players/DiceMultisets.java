@@ -0,0 +1,57 @@
+package players;
+
+// When the order of the dice doesn't matter, six dice can only land 462 ways. This numbers them
+// 0-461 (in order of how many 1s, then 2s, ... they have) so a strategy can keep a table per roll.
+public final class DiceMultisets {
+    public static final int COUNT = 462;
+    public static final int FACES = 6;
+    public static final int DICE = 6;
+
+    // OFFSET[face][diceLeft][count] is how many multisets come before the ones that have `count`
+    // dice showing `face` when `diceLeft` dice are left for this face and the ones above it
+    private static final int[][][] OFFSET = new int[FACES][DICE + 1][DICE + 1];
+
+    static {
+        for (int face = 0; face < FACES; face++) {
+            for (int left = 0; left <= DICE; left++) {
+                int offset = 0;
+                for (int count = 0; count <= left; count++) {
+                    OFFSET[face][left][count] = offset;
+                    offset += ways(FACES - face - 1, left - count);
+                }
+            }
+        }
+    }
+
+    private DiceMultisets() {}
+
+    // counts[f] is how many dice show face f + 1, adding up to 6
+    public static int rank(int[] counts) {
+        int rank = 0;
+        int left = DICE;
+        for (int face = 0; face < FACES - 1; face++) {
+            rank += OFFSET[face][left][counts[face]];
+            left -= counts[face];
+        }
+        return rank;
+    }
+
+    // Fills counts from the view's dice and returns their rank
+    public static int rank(GameView view, int[] counts) {
+        int packed = view.getDiceCounts();
+        for (int face = 0; face < FACES; face++) {
+            counts[face] = DiceCounts.count(packed, face + 1);
+        }
+        return rank(counts);
+    }
+
+    // Ways to spread n dice over k faces
+    private static int ways(int k, int n) {
+        if (k == 0) return n == 0 ? 1 : 0;
+        int ways = 1;
+        for (int i = 1; i < k; i++) {
+            ways = ways * (n + i) / i;
+        }
+        return ways;
+    }
+}
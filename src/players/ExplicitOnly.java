@@ -0,0 +1,7 @@
+package players;
+
+// A player that only takes part when it's asked for by name, not in runs over every player of
+// the PlayerRegistry (e.g. Tournament without players): it searches on every decision and would
+// take forever at the usual numbers of games, or it starts a program outside the JVM.
+public interface ExplicitOnly {
+}
@@ -0,0 +1,33 @@
+package players;
+
+// A private copy of a game in progress a strategy can play forward to try out its choices
+// (see GameView.newFork). Every seat starts out with a fresh player created the same way as in
+// the real game, so of the same class and with the same settings. Nothing a fork does is logged, and once created, copying and playing allocates
+// nothing, so one fork can run any number of rollouts. A fork is only used by one thread.
+public interface GameFork extends GameView {
+    // Takes over the position of `view`, which must be a view the engine handed to a player,
+    // including which decision the game is waiting for
+    void copyFrom(GameView view);
+
+    // Seeds the dice for whatever gets played next
+    void reseed(long seed);
+
+    Player getPlayer(int seat);
+
+    void setPlayer(int seat, Player player);
+
+    // Answers the rerollDice decision the view was copied at and plays to the end of that turn
+    void finishTurn(boolean[] reroll);
+
+    // Answers the leaveTokyo decision the view was copied at (exactly like leaveTokyo's return
+    // value) and plays to the end of that turn
+    void finishTurn(boolean leaveTokyo);
+
+    boolean isOver();
+
+    // Plays whole turns until the game is over and returns the winner
+    int playOut();
+
+    // The winner, or -1 while the game isn't over
+    int getWinner();
+}
@@ -0,0 +1,57 @@
+package players;
+
+// Read-only view of the game a Player is asked to make a decision in. It reads straight from
+// the engine's state, so nothing is copied per call. Only valid during the call it was passed to.
+public interface GameView {
+    int getCurrentTurn();
+
+    int getCurrentPlayer();
+
+    // -1 if nobody is in Tokyo yet
+    int getInTokyo();
+
+    int getNumOfPlayers();
+
+    int getNumOfDice();
+
+    // How many rerolls the current player has left, counting the one being decided (2 then 1 in
+    // rerollDice, 0 otherwise)
+    int getRerollsLeft();
+
+    // Face (1-6) of die `index`
+    int getDie(int index);
+
+    int getPlayerHealth(int player);
+
+    int getPlayerFame(int player);
+
+    default boolean isAlive(int player) {
+        return getPlayerHealth(player) > 0;
+    }
+
+    default boolean isInTokyo(int player) {
+        return getInTokyo() == player;
+    }
+
+    default int countAlive() {
+        int alive = 0;
+        for (int p = 0; p < getNumOfPlayers(); p++) {
+            if (isAlive(p)) alive++;
+        }
+        return alive;
+    }
+
+    // A private copy of the game that can be played forward from this decision, see GameFork.
+    // Creating one is slow, so keep it and copyFrom() the view on later decisions.
+    GameFork newFork();
+
+    // How many dice show each face, packed as in DiceCounts
+    default int getDiceCounts() {
+        return DiceCounts.of(this);
+    }
+
+    // How many dice show `face`
+    default int countDice(int face) {
+        return DiceCounts.count(getDiceCounts(), face);
+    }
+}
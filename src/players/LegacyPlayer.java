@@ -0,0 +1,42 @@
+package players;
+
+// For players written against the old methods that get the board as arrays. It copies the view
+// into arrays and calls those, which costs a copy per decision, so new players extend Player.
+public abstract class LegacyPlayer extends Player {
+    private int[] dice;
+    private int[] playerHealths;
+    private int[] playerFames;
+
+    public abstract boolean[] rerollDice(int currentTurn, int currentPlayer, int inTokyo, int[] dice, int[] playerHealths, int[] playerFames);
+
+    public abstract boolean leaveTokyo(int currentTurn, int currentPlayer, int inTokyo, int[] dice, int[] playerHealths, int[] playerFames);
+
+    @Override
+    public boolean[] rerollDice(GameView view) {
+        copyView(view);
+        return rerollDice(view.getCurrentTurn(), view.getCurrentPlayer(), view.getInTokyo(), dice, playerHealths, playerFames);
+    }
+
+    @Override
+    public boolean leaveTokyo(GameView view) {
+        copyView(view);
+        return leaveTokyo(view.getCurrentTurn(), view.getCurrentPlayer(), view.getInTokyo(), dice, playerHealths, playerFames);
+    }
+
+    // The same arrays every call, refilled from the view. Changing them can't change the real
+    // game, but a player that keeps them sees them change on its next decision.
+    private void copyView(GameView view) {
+        if (dice == null || dice.length != view.getNumOfDice()) dice = new int[view.getNumOfDice()];
+        if (playerHealths == null || playerHealths.length != view.getNumOfPlayers()) {
+            playerHealths = new int[view.getNumOfPlayers()];
+            playerFames = new int[view.getNumOfPlayers()];
+        }
+        for (int i = 0; i < dice.length; i++) {
+            dice[i] = view.getDie(i);
+        }
+        for (int p = 0; p < playerHealths.length; p++) {
+            playerHealths[p] = view.getPlayerHealth(p);
+            playerFames[p] = view.getPlayerFame(p);
+        }
+    }
+}
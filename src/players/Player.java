@@ -16,11 +16,12 @@ public abstract class Player {
 
     public int getHealth() {return health;}
 
-    public abstract boolean[] rerollDice(int currentTurn, int currentPlayer, int inTokyo, int[] dice, int[] playerHealths, int[] playerFames);
+    // Players written against the old array based methods extend LegacyPlayer instead
+    public abstract boolean[] rerollDice(GameView view);
 
-    public abstract boolean leaveTokyo(int currentTurn, int currentPlayer, int inTokyo, int[] dice, int[] playerHealths, int[] playerFames);
+    public abstract boolean leaveTokyo(GameView view);
 
     public int getId() {return id;}
 
     public void setId(int id) {this.id = id;}
-}
\ No newline at end of file
+}
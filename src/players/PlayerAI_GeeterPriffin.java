@@ -1,23 +1,88 @@
 package players;
 
-public class PlayerAI_GeeterPriffin extends Player {
-    public boolean[] rerollDice(int currentTurn, int currentPlayer, int inTokyo, int[] dice, int[] playerHealths, int[] playerFames) {
-        
-        boolean[] output = new boolean[] {false, false, false, false, false, false};
-        
-        int[] numOfDice = new int[6]; 
+import java.util.Arrays;
+
+public class PlayerAI_GeeterPriffin extends Player implements Tunable {
+    private static final Parameter[] PARAMETERS = {
+        // Keep the 1s if there are this many, health is at most onesMaxHealth and fame at least onesMinFame
+        new Parameter("onesCount", 4, 3, 6),
+        new Parameter("onesMaxHealth", 4, 0, 12),
+        new Parameter("onesMinFame", 12, 0, 20),
+        // Keep 2s, 3s and 4s once there are this many of them
+        new Parameter("twosCount", 2, 1, 6),
+        new Parameter("threesCount", 2, 1, 6),
+        new Parameter("foursCount", 2, 1, 6),
+        // Keep 5s outside Tokyo at this much health or less
+        new Parameter("healMaxHealth", 5, 0, 12),
+        // At this much health or less health comes before fame
+        new Parameter("lowHealth", 4, 0, 12),
+        // Give up on 1s-3s when no more dice than this are left for them
+        new Parameter("fameMinDice", 2, 0, 6),
+        // Leave Tokyo at this much health or less, unless fame is over leaveMaxFame
+        new Parameter("leaveMaxHealth", 5, 0, 12),
+        new Parameter("leaveMaxFame", 17, 0, 20),
+    };
+
+    // Reused between calls, the engine reads output before asking again
+    private final boolean[] output = new boolean[6];
+    private final int[] numOfDice = new int[6];
+
+    private int onesCount;
+    private int onesMaxHealth;
+    private int onesMinFame;
+    private int twosCount;
+    private int threesCount;
+    private int foursCount;
+    private int healMaxHealth;
+    private int lowHealth;
+    private int fameMinDice;
+    private int leaveMaxHealth;
+    private int leaveMaxFame;
+
+    public PlayerAI_GeeterPriffin() {
+        setParameters(Tunable.fromSettings("PlayerAI_GeeterPriffin", PARAMETERS));
+    }
+
+    @Override
+    public Parameter[] getParameters() {
+        return PARAMETERS.clone();
+    }
+
+    @Override
+    public void setParameters(int[] values) {
+        onesCount = values[0];
+        onesMaxHealth = values[1];
+        onesMinFame = values[2];
+        twosCount = values[3];
+        threesCount = values[4];
+        foursCount = values[5];
+        healMaxHealth = values[6];
+        lowHealth = values[7];
+        fameMinDice = values[8];
+        leaveMaxHealth = values[9];
+        leaveMaxFame = values[10];
+    }
+
+    public boolean[] rerollDice(GameView view) {
+        int inTokyo = view.getInTokyo();
+        int myHealth = view.getPlayerHealth(getId());
+        int myFame = view.getPlayerFame(getId());
+
+        Arrays.fill(output, false);
         
-        for (int d : dice) {
-            numOfDice[d - 1] += 1;
+        int counts = view.getDiceCounts();
+        for (int face = 1; face <= numOfDice.length; face++) {
+            numOfDice[face - 1] = DiceCounts.count(counts, face);
         }
         
         // Dice left to reroll: Updated for necessary things
         int diceLeft = 6;
         
         for (int j = 0; j < numOfDice.length; j++) {
+            int die = view.getDie(j);
             // 1: Ignore :(
-            if (dice[j] == 1) {
-                if (numOfDice[0] >= 4 && playerHealths[getId()] <= 4 && playerFames[getId()] >= 12) {
+            if (die == 1) {
+                if (numOfDice[0] >= onesCount && myHealth <= onesMaxHealth && myFame >= onesMinFame) {
                     output[j] = false;
                 } else {
                     output[j] = true;
@@ -25,8 +90,8 @@ public class PlayerAI_GeeterPriffin extends Player {
             }
             
             // 2
-            if (dice[j] == 2) {
-                if (numOfDice[1] >= 2) {
+            if (die == 2) {
+                if (numOfDice[1] >= twosCount) {
                     output[j] = false;
                 } else {
                     output[j] = true;
@@ -34,8 +99,8 @@ public class PlayerAI_GeeterPriffin extends Player {
             }
             
             // 3
-            if (dice[j] == 3) {
-                if (numOfDice[2] >= 2) {
+            if (die == 3) {
+                if (numOfDice[2] >= threesCount) {
                     output[j] = false;
                 } else {
                     output[j] = true;
@@ -43,8 +108,8 @@ public class PlayerAI_GeeterPriffin extends Player {
             }
             
             // 4
-            if (dice[j] == 4 && numOfDice[3] >= 2) {
-                if (getCurrentIndexOfNumber(j, 4, dice) > 3) {
+            if (die == 4 && numOfDice[3] >= foursCount) {
+                if (getCurrentIndexOfNumber(j, 4, view) > 3) {
                     // Don't keep the four if you already have 3 fours
                     output[j] = true;
                 } else {
@@ -53,13 +118,13 @@ public class PlayerAI_GeeterPriffin extends Player {
             }
             
             // 5
-            if (dice[j] == 5) {
+            if (die == 5) {
                 if (getId() == inTokyo) {
                     // In Tokyo: Can't heal
                     output[j] = true;
                 } else {
                     // Not in tokyo
-                    if (playerHealths[getId()] <= 5) {
+                    if (myHealth <= healMaxHealth) {
                         output[j] = false;
                         diceLeft--;
                         continue;
@@ -69,24 +134,25 @@ public class PlayerAI_GeeterPriffin extends Player {
             }
             
             // 6
-            if (dice[j] == 6) {
+            if (die == 6) {
                 output[j] = false;
                 diceLeft--;
             }
         }
         
         
-        for (int index = 0; index < dice.length; index++) {
-            if (playerHealths[getId()] <= 4) {
+        for (int index = 0; index < output.length; index++) {
+            int die = view.getDie(index);
+            if (myHealth <= lowHealth) {
                 // Prioritize health over fame
-                if (dice[index] == 1 || dice[index] == 2 || dice[index] == 3) {
+                if (die == 1 || die == 2 || die == 3) {
                     output[index] = true;
                 }
             }
             
-            if (diceLeft <= 2) {
+            if (diceLeft <= fameMinDice) {
                 // If no chance to get 3 of a certain fame the reroll those
-                if (dice[index] == 1 || dice[index] == 2 || dice[index] == 3) {
+                if (die == 1 || die == 2 || die == 3) {
                     output[index] = true;
                 }
             }
@@ -95,26 +161,26 @@ public class PlayerAI_GeeterPriffin extends Player {
                 // trying to get a third four
                 if (numOfDice[0] == 0 && numOfDice[1] == 0 && numOfDice[2] < 2 ) {
                     //reroll the three
-                    if (dice[index] == 3) output[index] = true;
+                    if (die == 3) output[index] = true;
                     
                 } else if (numOfDice[0] == 0 &&  numOfDice[1] < 2) {
                     //reroll the two
-                    if (dice[index] == 2) output[index] = true;
+                    if (die == 2) output[index] = true;
                     
                 } else if (numOfDice[0] < 4) {
                     //reroll the one
-                    if (dice[index] == 1) output[index] = true;
+                    if (die == 1) output[index] = true;
                     
-                } else if (getCurrentIndexOfNumber(index, 5, dice) == 1) {
+                } else if (getCurrentIndexOfNumber(index, 5, view) == 1) {
                     // only rerolls the first five
-                    if (dice[index] == 5) output[index] = true;
+                    if (die == 5) output[index] = true;
                 }
             }
             
             // roll 2 twos 2 threes 2 fours
             if (numOfDice[1] == 2 && numOfDice[2] == 2 && numOfDice[3] == 3) {
                 //keep everything but the twos
-                if (dice[index] == 2) {
+                if (die == 2) {
                     output[index] = true;
                 }
             }
@@ -129,27 +195,28 @@ public class PlayerAI_GeeterPriffin extends Player {
         return output;
     }
     
-    private int getCurrentIndexOfNumber(int index, int target, int[] dice) {
+    private int getCurrentIndexOfNumber(int index, int target, GameView view) {
         if (target < 0 || target > 6) throw new IllegalArgumentException("Target Invalid");
-        if (index < 0 || index > dice.length - 1) throw new IllegalArgumentException("Index invalid");
-        // if (dice[index] != target) return -1;
+        if (index < 0 || index > view.getNumOfDice() - 1) throw new IllegalArgumentException("Index invalid");
+        // if (die != target) return -1;
         
         int numOfTarget = 0;
         for (int i = 0; i <= index; i++) {
-            if (dice[i] == target) numOfTarget++;
+            if (view.getDie(i) == target) numOfTarget++;
         }
         
         return numOfTarget;
     }
     
-    public boolean leaveTokyo(int currentTurn, int currentPlayer, int inTokyo, int[] dice, int[] playerHealths, int[] playerFames) {
+    public boolean leaveTokyo(GameView view) {
         // Assumed that inTokyo is an ID of an instance of PlayerAI
+        int inTokyo = view.getInTokyo();
         
-        if (playerHealths[inTokyo] <= 5 && playerFames[inTokyo] <= 17) {
+        if (view.getPlayerHealth(inTokyo) <= leaveMaxHealth && view.getPlayerFame(inTokyo) <= leaveMaxFame) {
             return true;
         }
         
-        // Don't leave tokyo if health greater than 5 or fame greater than 17
+        // Don't leave tokyo if health greater than leaveMaxHealth or fame greater than leaveMaxFame
         return false;
     }
 }
\ No newline at end of file
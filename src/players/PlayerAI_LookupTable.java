@@ -0,0 +1,97 @@
+package players;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Rerolls by looking the roll up in a table built ahead of time (see LookupTableBuilder), which
+// holds the keep with the best expected score for every roll, reroll, Tokyo and health/fame
+// bucket. The table is PlayerAI_LookupTable.bin next to this class.
+public class PlayerAI_LookupTable extends Player {
+    public static final String RESOURCE = "PlayerAI_LookupTable.bin";
+    public static final int MAGIC = 0x4B4F544C; // "KOTL"
+    public static final int VERSION = 1;
+
+    public static final int REROLLS = 2;
+    public static final int HEALTH_BUCKETS = 4;
+    public static final int FAME_BUCKETS = 4;
+    public static final int SIZE = DiceMultisets.COUNT * REROLLS * 2 * HEALTH_BUCKETS * FAME_BUCKETS;
+
+    private static byte[] table;
+
+    private final boolean[] rerolls = new boolean[DiceMultisets.DICE];
+    private final int[] counts = new int[DiceMultisets.FACES];
+    private final int[] keep = new int[DiceMultisets.FACES];
+    private final byte[] keeps;
+
+    public PlayerAI_LookupTable() {
+        keeps = table();
+    }
+
+    // Health 0-3, 4-6, 7-9, 10-12
+    public static int healthBucket(int health) {
+        return Math.min(HEALTH_BUCKETS - 1, Math.max(0, health - 1) / 3);
+    }
+
+    // Fame 0-9, 10-14, 15-17, 18-20
+    public static int fameBucket(int fame) {
+        if (fame < 10) return 0;
+        if (fame < 15) return 1;
+        if (fame < 18) return 2;
+        return 3;
+    }
+
+    public static int index(int rank, int rerollsLeft, boolean inTokyo, int healthBucket, int fameBucket) {
+        return (((rank * REROLLS + rerollsLeft - 1) * 2 + (inTokyo ? 1 : 0)) * HEALTH_BUCKETS + healthBucket) * FAME_BUCKETS + fameBucket;
+    }
+
+    @Override
+    public boolean[] rerollDice(GameView view) {
+        int rank = DiceMultisets.rank(view, counts);
+        int rerollsLeft = Math.max(1, Math.min(REROLLS, view.getRerollsLeft()));
+        int mask = keeps[index(rank, rerollsLeft, view.isInTokyo(getId()),
+                healthBucket(view.getPlayerHealth(getId())), fameBucket(view.getPlayerFame(getId())))];
+
+        // Bit k of the mask keeps the k-th die when the dice are sorted, which is only a matter
+        // of how many of each face to keep
+        int bit = 0;
+        for (int face = 0; face < keep.length; face++) {
+            keep[face] = Integer.bitCount((mask >>> bit) & ((1 << counts[face]) - 1));
+            bit += counts[face];
+        }
+        for (int i = 0; i < rerolls.length; i++) {
+            int face = view.getDie(i) - 1;
+            rerolls[i] = keep[face] == 0;
+            if (keep[face] > 0) keep[face]--;
+        }
+        return rerolls;
+    }
+
+    @Override
+    public boolean leaveTokyo(GameView view) {
+        // Game takes true as leaving when asked at the start of a turn, but as staying when
+        // asked after being hit. So this hands Tokyo over at the start of a turn and never runs
+        // from a fight, which plays better than anything that tries to leave on low health.
+        return true;
+    }
+
+    private static synchronized byte[] table() {
+        if (table == null) table = load();
+        return table;
+    }
+
+    private static byte[] load() {
+        try (InputStream in = PlayerAI_LookupTable.class.getResourceAsStream(RESOURCE)) {
+            if (in == null) throw new IllegalStateException(RESOURCE + " is missing, run LookupTableBuilder to create it");
+            DataInputStream data = new DataInputStream(in);
+            if (data.readInt() != MAGIC || data.readInt() != VERSION || data.readInt() != SIZE) {
+                throw new IllegalStateException(RESOURCE + " doesn't match this version of " + PlayerAI_LookupTable.class.getSimpleName() + ", run LookupTableBuilder again");
+            }
+            byte[] keeps = new byte[SIZE];
+            data.readFully(keeps);
+            return keeps;
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read " + RESOURCE, e);
+        }
+    }
+}
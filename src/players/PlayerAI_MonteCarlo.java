@@ -0,0 +1,211 @@
+package players;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Decides by playing the game out from the current position (see GameFork) many times for every
+// choice it has and going with the one that won most often. Every choice is played with the
+// same dice seeds so luck doesn't decide between them. In the rollouts the opponents play their
+// own strategy and this seat plays PlayerAI_LookupTable.
+// Settings, as system properties:
+//   kot.mc.rollouts  rollouts per decision, spread over the choices (default 256)
+//   kot.mc.millis    think this long per decision instead of a number of rollouts (default 0)
+//   kot.mc.threads   threads the rollouts run on (default 1)
+public class PlayerAI_MonteCarlo extends Player implements ExplicitOnly {
+    private static final int ROLLOUTS = Math.max(1, Integer.getInteger("kot.mc.rollouts", 256));
+    private static final long NANOS = Long.getLong("kot.mc.millis", 0) * 1_000_000L;
+    private static final int THREADS = Math.max(1, Integer.getInteger("kot.mc.threads", 1));
+    private static final int MAX_CHOICES = 1 << DiceMultisets.DICE;
+
+    // Shared by every MonteCarlo player, the threads don't keep the JVM alive
+    private static ExecutorService pool;
+
+    private final boolean[] rerolls = new boolean[DiceMultisets.DICE];
+    private final int[] counts = new int[DiceMultisets.FACES];
+    private final int[] keep = new int[DiceMultisets.FACES];
+    private final int[] left = new int[DiceMultisets.FACES];
+    // Reroll masks for every different keep of the current roll
+    private final boolean[][] choices = new boolean[MAX_CHOICES][DiceMultisets.DICE];
+    private final long[] wins = new long[MAX_CHOICES];
+    private final Worker[] workers = new Worker[THREADS];
+    // Plays when the view can't be forked
+    private Player fallback;
+
+    @Override
+    public boolean[] rerollDice(GameView view) {
+        if (!canFork(view)) return fallback.rerollDice(view);
+
+        int numOfChoices = listChoices(view);
+        int best = search(view, numOfChoices, false);
+        System.arraycopy(choices[best], 0, rerolls, 0, rerolls.length);
+        return rerolls;
+    }
+
+    @Override
+    public boolean leaveTokyo(GameView view) {
+        if (!canFork(view)) return fallback.leaveTokyo(view);
+
+        // Choice 0 answers true, choice 1 false
+        return search(view, 2, true) == 0;
+    }
+
+    // Runs the rollouts and returns the choice that won most
+    private int search(GameView view, int numOfChoices, boolean leaveTokyo) {
+        long seed = seed(view);
+        List<Future<long[]>> others = new ArrayList<>();
+        for (int t = 1; t < THREADS; t++) {
+            Worker worker = workers[t];
+            others.add(pool().submit(() -> worker.run(view, numOfChoices, leaveTokyo, seed)));
+        }
+
+        long[] total = workers[0].run(view, numOfChoices, leaveTokyo, seed);
+        System.arraycopy(total, 0, wins, 0, numOfChoices);
+        try {
+            for (Future<long[]> other : others) {
+                long[] otherWins = other.get();
+                for (int c = 0; c < numOfChoices; c++) {
+                    wins[c] += otherWins[c];
+                }
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IllegalStateException("Rollout failed", e);
+        }
+
+        int best = 0;
+        for (int c = 1; c < numOfChoices; c++) {
+            if (wins[c] > wins[best]) best = c;
+        }
+        return best;
+    }
+
+    // Fills choices with a reroll mask for every different keep, keeping everything first
+    private int listChoices(GameView view) {
+        DiceMultisets.rank(view, counts);
+        for (int face = 0; face < keep.length; face++) {
+            keep[face] = counts[face];
+        }
+
+        int numOfChoices = 0;
+        do {
+            System.arraycopy(keep, 0, left, 0, left.length);
+            boolean[] choice = choices[numOfChoices++];
+            for (int i = 0; i < choice.length; i++) {
+                int face = view.getDie(i) - 1;
+                choice[i] = left[face] == 0;
+                if (left[face] > 0) left[face]--;
+            }
+        } while (fewer(keep, counts));
+        return numOfChoices;
+    }
+
+    // Steps keep down to the next smaller keep, false once every keep was listed
+    private static boolean fewer(int[] keep, int[] counts) {
+        for (int face = 0; face < keep.length; face++) {
+            if (keep[face] > 0) {
+                keep[face]--;
+                return true;
+            }
+            keep[face] = counts[face];
+        }
+        return false;
+    }
+
+    private boolean canFork(GameView view) {
+        if (workers[0] != null) return true;
+        if (fallback == null) fallback = rolloutPlayer(getId());
+        try {
+            for (int t = 0; t < workers.length; t++) {
+                workers[t] = new Worker(view.newFork(), t);
+            }
+            return true;
+        } catch (UnsupportedOperationException e) {
+            workers[0] = null;
+            return false;
+        }
+    }
+
+    // What this seat plays in the rollouts
+    private static Player rolloutPlayer(int seat) {
+        Player player;
+        try {
+            player = new PlayerAI_LookupTable();
+        } catch (IllegalStateException e) {
+            player = new PlayerAI_GeeterPriffin();
+        }
+        player.setId(seat);
+        return player;
+    }
+
+    // The same position always gets the same rollouts
+    private long seed(GameView view) {
+        long seed = getId() * 31L + view.getCurrentTurn();
+        for (int i = 0; i < view.getNumOfDice(); i++) {
+            seed = seed * 7 + view.getDie(i);
+        }
+        for (int p = 0; p < view.getNumOfPlayers(); p++) {
+            seed = seed * 31 + view.getPlayerHealth(p) * 32 + view.getPlayerFame(p);
+        }
+        return mix(seed);
+    }
+
+    // SplitMix64's finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static synchronized ExecutorService pool() {
+        if (pool == null) {
+            pool = Executors.newFixedThreadPool(THREADS - 1, runnable -> {
+                Thread thread = new Thread(runnable, "monte-carlo");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return pool;
+    }
+
+    // One thread's fork and win counts. Thread t plays rounds t, t + THREADS, ... where a round
+    // is one rollout of every choice with the same seed.
+    private class Worker {
+        private final GameFork fork;
+        private final long[] wins = new long[MAX_CHOICES];
+        private final int thread;
+
+        Worker(GameFork fork, int thread) {
+            this.fork = fork;
+            this.thread = thread;
+            for (int seat = 0; seat < fork.getNumOfPlayers(); seat++) {
+                if (seat == getId() || fork.getPlayer(seat) instanceof PlayerAI_MonteCarlo) {
+                    fork.setPlayer(seat, rolloutPlayer(seat));
+                }
+            }
+        }
+
+        long[] run(GameView view, int numOfChoices, boolean leaveTokyo, long seed) {
+            for (int c = 0; c < numOfChoices; c++) {
+                wins[c] = 0;
+            }
+            int rounds = Math.max(1, ROLLOUTS / numOfChoices);
+            long deadline = System.nanoTime() + NANOS;
+
+            // With a time budget every thread plays at least one round, then rounds until the deadline
+            for (int round = thread; NANOS > 0 ? round == thread || System.nanoTime() < deadline : round < rounds; round += THREADS) {
+                long roundSeed = mix(seed + round);
+                for (int c = 0; c < numOfChoices; c++) {
+                    fork.copyFrom(view);
+                    fork.reseed(roundSeed);
+                    if (leaveTokyo) fork.finishTurn(c == 0);
+                    else fork.finishTurn(choices[c]);
+                    if (fork.playOut() == getId()) wins[c]++;
+                }
+            }
+            return wins;
+        }
+    }
+}
@@ -1,17 +1,47 @@
 package players;
-import java.util.*;
 
-public class PlayerAI_NaivePlusPlus extends Player {
+public class PlayerAI_NaivePlusPlus extends Player implements Tunable {
+    private static final Parameter[] PARAMETERS = {
+        // Play aggressive once whoever is in Tokyo has more fame than this
+        new Parameter("aggressiveFame", 9, 0, 20),
+        // With two players left stay in Tokyo if the other one has more fame than this
+        new Parameter("stayMaxFame", 13, 0, 20),
+        // Otherwise leave Tokyo with less health or fame than these
+        new Parameter("leaveHealth", 7, 1, 12),
+        new Parameter("leaveFame", 11, 0, 20),
+        // Keep 5s to heal up to this much health
+        new Parameter("healUpTo", 12, 0, 12),
+    };
+
+    // Handed back from rerollDice, the engine reads it before the next call
+    private final boolean[] rerolls = new boolean[6];
+
+    private int aggressiveFame;
+    private int stayMaxFame;
+    private int leaveHealth;
+    private int leaveFame;
+    private int healUpTo;
+
+    public PlayerAI_NaivePlusPlus() {
+        setParameters(Tunable.fromSettings("PlayerAI_NaivePlusPlus", PARAMETERS));
+    }
+
+    @Override
+    public Parameter[] getParameters() {
+        return PARAMETERS.clone();
+    }
 
     @Override
-    public boolean[] rerollDice(
-            int currentTurn,
-            int currentPlayer,
-            int inTokyo,
-            int[] dice,
-            int[] playerHealths,
-            int[] playerFames
-    ) {
+    public void setParameters(int[] values) {
+        aggressiveFame = values[0];
+        stayMaxFame = values[1];
+        leaveHealth = values[2];
+        leaveFame = values[3];
+        healUpTo = values[4];
+    }
+
+    @Override
+    public boolean[] rerollDice(GameView view) {
         
         /*  Six possible combinations:
             Health only
@@ -21,33 +51,27 @@ public class PlayerAI_NaivePlusPlus extends Player {
             Health + Fame
             Damage + Fame
         */
-        int playersAlive = alive(playerHealths);
+        int playersAlive = view.countAlive();
+        int inTokyo = view.getInTokyo();
         // If there are two players or a player is close to winning
         if(
                 playersAlive == 2
-                        || (inTokyo >= 0 && playerFames[inTokyo] > 9)
-        ) return stratAggressive(dice);
-        else { return stratPassive(dice, currentPlayer, inTokyo,
-                playerHealths); }
+                        || (inTokyo >= 0 && view.getPlayerFame(inTokyo) > aggressiveFame)
+        ) return stratAggressive(view);
+        else { return stratPassive(view, view.getCurrentPlayer(), inTokyo); }
     }
 
     @Override
-    public boolean leaveTokyo(
-            int currentTurn,
-            int currentPlayer,
-            int inTokyo,
-            int[] dice,
-            int[] playerHealths,
-            int[] playerFames
-    ) {
+    public boolean leaveTokyo(GameView view) {
         // If there are too many players or not close to winning
-        int playersAlive = alive(playerHealths);
-        int maxFame = maxFame(playerFames, currentPlayer);
-        if (playersAlive == 2 && maxFame > 13) {
+        int currentPlayer = view.getCurrentPlayer();
+        int playersAlive = view.countAlive();
+        int maxFame = maxFame(view, currentPlayer);
+        if (playersAlive == 2 && maxFame > stayMaxFame) {
             return false;
         }
-        if (playerHealths[currentPlayer] < 7
-                || playerFames[currentPlayer] < 11
+        if (view.getPlayerHealth(currentPlayer) < leaveHealth
+                || view.getPlayerFame(currentPlayer) < leaveFame
                 || playersAlive > 2) {
             return true;
         }
@@ -56,56 +80,47 @@ public class PlayerAI_NaivePlusPlus extends Player {
 
 
 
-    private int alive(int[] healths) {
-        return Arrays.stream(healths)
-                .map(x -> x > 0 ? 1 : 0)
-                .sum();
-    }
-
-    private int maxFame(int fames[], int currentPlayer) {
+    private int maxFame(GameView view, int currentPlayer) {
         int max = 0;
-        for (int i = 0; i < fames.length; i++) {
-            if (fames[i] > max && i != currentPlayer) {
-                max = fames[i];
+        for (int i = 0; i < view.getNumOfPlayers(); i++) {
+            if (view.getPlayerFame(i) > max && i != currentPlayer) {
+                max = view.getPlayerFame(i);
             }
         }
         return max;
     }
 
-    private boolean[] stratAggressive(int[] dice) {
-        boolean[] rerolls = new boolean[6];
-        int numFours = 0;
-        for (int i = 0; i < dice.length; i++) {
-            if (dice[i] == 6) {
+    private boolean[] stratAggressive(GameView view) {
+        int numFours = view.countDice(4);
+        for (int i = 0; i < rerolls.length; i++) {
+            int die = view.getDie(i);
+            if (die == 6) {
                 rerolls[i] = false;
             }
-            else if (dice[i] == 4) {
-                numFours++;
+            else if (die == 4) {
                 rerolls[i] = false;
             }
             else {
                 rerolls[i] = true;
             }
         }
-        rerolls = checkFours(dice, rerolls, numFours);
+        checkFours(view, numFours);
         return rerolls;
     }
 
-    private boolean[] stratPassive(int[] dice, int currentPlayer,
-                                   int inTokyo, int[] playerHealths) {
-        boolean[] rerolls = new boolean[6];
-        int myHealth = playerHealths[currentPlayer];
-        int healingNeeded = 12 - myHealth;
-        int numFours = 0;
+    private boolean[] stratPassive(GameView view, int currentPlayer, int inTokyo) {
+        int myHealth = view.getPlayerHealth(currentPlayer);
+        int healingNeeded = healUpTo - myHealth;
+        int numFours = view.countDice(4);
 
-        for (int i = 0; i < dice.length; i++) {
+        for (int i = 0; i < rerolls.length; i++) {
+            int die = view.getDie(i);
             // If the dice shows 5 and more healing can be obtained
-            if (dice[i] == 5 && healingNeeded > 0 && currentPlayer != inTokyo) {
+            if (die == 5 && healingNeeded > 0 && currentPlayer != inTokyo) {
                 healingNeeded--;
                 rerolls[i] = false;
             }
-            else if (dice[i] == 4) {
-                numFours++;
+            else if (die == 4) {
                 rerolls[i] = false;
             }
             // Otherwise..
@@ -113,16 +128,16 @@ public class PlayerAI_NaivePlusPlus extends Player {
                 rerolls[i] = true;
             }
         }
-        rerolls = checkFours(dice, rerolls, numFours);
+        checkFours(view, numFours);
         return rerolls;
     }
 
-    private boolean[] checkFours(int[] dice, boolean[] rerolls, int numFours) {
+    private void checkFours(GameView view, int numFours) {
         // If there are more than three fours
         if (numFours > 3) {
             int extraFours = numFours - 3;
             for (int i = 0; i < rerolls.length; i++) {
-                if (dice[i] == 4 && extraFours > 0) {
+                if (view.getDie(i) == 4 && extraFours > 0) {
                     rerolls[i] = true;
                     extraFours--;
                 }
@@ -134,14 +149,12 @@ public class PlayerAI_NaivePlusPlus extends Player {
         // If there is only one four
         else if (numFours == 1) {
             for (int i = 0; i < rerolls.length; i++) {
-                if (dice[i] == 4) {
+                if (view.getDie(i) == 4) {
                     rerolls[i] = true;
                     break;
                 }
             }
         }
-
-        return rerolls;
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,81 @@
+package players;
+
+// Plays by asking a program outside the JVM, so strategies can be written in any language. The
+// program is started once with the command in the kot.bot.command system property and gets the
+// decisions of every game of the JVM on its stdin, one line each, with an id in front:
+//   <id> R <seat> <turn> <current player> <in Tokyo> <dice> <healths> <fames>
+//   <id> L <seat> <turn> <current player> <in Tokyo> <dice> <healths> <fames>
+// R asks which dice to reroll, L whether to leave Tokyo. Seats count from 0, in Tokyo is -1 when
+// nobody is, dice are digits ("316645") and healths and fames comma separated ("10,7,3").
+// It answers each with a line of the same id: "<id> 010011" rerolls the dice with a 1, "<id> 1"
+// leaves Tokyo and "<id> 0" stays. Answers can come in any order and should come without
+// waiting for more requests; more requests come while it's thinking, one per game being played.
+// A Python bot that always keeps its dice and stays:
+//   import sys
+//   for line in sys.stdin:
+//       id, kind, *rest = line.split()
+//       print(id, "000000" if kind == "R" else "0", flush=True)
+//
+// Every game waits for its answer on its own thread, so run with more threads than cores (e.g.
+// BatchRunner --threads 32) to keep both the bot and the engine busy.
+// Settings, as system properties:
+//   kot.bot.command  the program and its arguments, split at spaces
+//   kot.bot.timeout  milliseconds to wait for an answer before the game fails (default 60000)
+//   kot.bot.files    more files the bot reads, separated by spaces, so the result cache notices
+//                    when they change (the files in kot.bot.command are covered already)
+public class PlayerExternalBot extends Player implements ExplicitOnly {
+    private static final String COMMAND = System.getProperty("kot.bot.command");
+    private static final long TIMEOUT = Long.getLong("kot.bot.timeout", 60_000);
+
+    private final BotProcess bot;
+    private final StringBuilder request = new StringBuilder();
+    private boolean[] rerolls;
+
+    public PlayerExternalBot() {
+        if (COMMAND == null || COMMAND.isBlank()) {
+            throw new IllegalStateException("Set kot.bot.command to the program " + getClass().getSimpleName() + " should ask");
+        }
+        bot = BotProcess.of(COMMAND);
+    }
+
+    @Override
+    public boolean[] rerollDice(GameView view) {
+        String answer = bot.ask(request('R', view), TIMEOUT);
+        if (rerolls == null || rerolls.length != view.getNumOfDice()) rerolls = new boolean[view.getNumOfDice()];
+        if (answer.length() != rerolls.length) throw new IllegalStateException("The bot answered \"" + answer + "\" to " + request);
+        for (int i = 0; i < rerolls.length; i++) {
+            rerolls[i] = answer.charAt(i) == '1';
+        }
+        return rerolls;
+    }
+
+    @Override
+    public boolean leaveTokyo(GameView view) {
+        String answer = bot.ask(request('L', view), TIMEOUT);
+        if (!answer.equals("1") && !answer.equals("0")) throw new IllegalStateException("The bot answered \"" + answer + "\" to " + request);
+        return answer.equals("1");
+    }
+
+    private String request(char kind, GameView view) {
+        request.setLength(0);
+        request.append(kind).append(' ').append(getId())
+                .append(' ').append(view.getCurrentTurn())
+                .append(' ').append(view.getCurrentPlayer())
+                .append(' ').append(view.getInTokyo())
+                .append(' ');
+        for (int i = 0; i < view.getNumOfDice(); i++) {
+            request.append(view.getDie(i));
+        }
+        request.append(' ');
+        for (int p = 0; p < view.getNumOfPlayers(); p++) {
+            if (p > 0) request.append(',');
+            request.append(view.getPlayerHealth(p));
+        }
+        request.append(' ');
+        for (int p = 0; p < view.getNumOfPlayers(); p++) {
+            if (p > 0) request.append(',');
+            request.append(view.getPlayerFame(p));
+        }
+        return request.toString();
+    }
+}
@@ -1,22 +1,20 @@
 package players;
 
 public class PlayerNaive extends Player {
-    public boolean[] rerollDice(int currentTurn, int currentPlayer, int inTokyo, int[] dice, int[] playerHealths, int[] playerFames) {
+    private final boolean[] ret = new boolean[6];
+
+    public boolean[] rerollDice(GameView view) {
         // Re-roll if not 6
-        boolean[] ret = new boolean[] {false, false, false, false, false, false};
-        
-        for (int die = 0; die < dice.length; die++){
-            if (dice[die] != 6){
-                ret[die] = true;
-            }
+        for (int die = 0; die < ret.length; die++){
+            ret[die] = view.getDie(die) != 6;
         }
         return ret;
     }
 
-    public boolean leaveTokyo(int currentTurn, int currentPlayer, int inTokyo, int[] dice, int[] playerHealths, int[] playerFames) {
+    public boolean leaveTokyo(GameView view) {
         if (super.getHealth() == 1) {
             return true;
         }
         return false;
     }
-}
\ No newline at end of file
+}
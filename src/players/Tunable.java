@@ -0,0 +1,62 @@
+package players;
+
+// A strategy whose thresholds can be set from outside instead of being written into its code,
+// e.g. by StrategyOptimizer. Unless told otherwise it plays with the defaults, which are the
+// values it was tuned to by hand. Values can also be given as a system property named after the
+// class, so a tuned set can be played anywhere:
+//   -Dkot.tune.PlayerAI_GeeterPriffin=leaveMaxHealth=6,leaveMaxFame=15
+public interface Tunable {
+    Parameter[] getParameters();
+
+    // Values in the order of getParameters()
+    void setParameters(int[] values);
+
+    final class Parameter {
+        public final String name;
+        public final int defaultValue;
+        // The values that make sense to try
+        public final int min;
+        public final int max;
+
+        public Parameter(String name, int defaultValue, int min, int max) {
+            this.name = name;
+            this.defaultValue = defaultValue;
+            this.min = min;
+            this.max = max;
+        }
+    }
+
+    static int[] defaults(Parameter[] parameters) {
+        int[] values = new int[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            values[i] = parameters[i].defaultValue;
+        }
+        return values;
+    }
+
+    // The defaults with whatever the kot.tune.<name> property sets
+    static int[] fromSettings(String name, Parameter[] parameters) {
+        int[] values = defaults(parameters);
+        String setting = System.getProperty("kot.tune." + name);
+        if (setting == null || setting.isBlank()) return values;
+
+        for (String assignment : setting.split(",")) {
+            int equals = assignment.indexOf('=');
+            int index = indexOf(parameters, equals < 0 ? assignment.trim() : assignment.substring(0, equals).trim());
+            if (equals < 0 || index < 0) throw new IllegalStateException("kot.tune." + name + ": " + assignment.trim() + " isn't name=value of one of its parameters");
+            try {
+                values[index] = Integer.parseInt(assignment.substring(equals + 1).trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalStateException("kot.tune." + name + ": " + assignment.trim() + " needs a whole number");
+            }
+        }
+        return values;
+    }
+
+    static int indexOf(Parameter[] parameters, String name) {
+        for (int i = 0; i < parameters.length; i++) {
+            if (parameters[i].name.equals(name)) return i;
+        }
+        return -1;
+    }
+}
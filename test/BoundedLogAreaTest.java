@@ -0,0 +1,84 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BoundedLogAreaTest {
+    @TempDir
+    Path dir;
+
+    // Per-turn entries hold several lines each, the transcript must still get all of them
+    @Test
+    public void transcriptKeepsEveryLineOfMultiLineEntries() throws Exception {
+        File file = dir.resolve("transcript.log").toFile();
+        BoundedLogArea area = new BoundedLogArea(10);
+        area.spillTo(file);
+
+        List<String> expected = new ArrayList<>();
+        for (int e = 0; e < 12; e++) {
+            area.appendLines(List.of("L" + e + "a\nL" + e + "b\nL" + e + "c"));
+            expected.add("L" + e + "a");
+            expected.add("L" + e + "b");
+            expected.add("L" + e + "c");
+        }
+        area.closeTranscript();
+
+        assertTrue(area.isTrimmed());
+        assertEquals(expected, Files.readAllLines(file.toPath()));
+        assertTrue(area.getLineCount() <= 10);
+    }
+
+    // One batch that overflows the view by itself
+    @Test
+    public void oversizedBatchKeepsTheLastLinesInViewAndAllInTranscript() throws Exception {
+        File file = dir.resolve("transcript.log").toFile();
+        BoundedLogArea area = new BoundedLogArea(10);
+        area.spillTo(file);
+
+        List<String> entries = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+        for (int e = 0; e < 8; e++) {
+            entries.add("L" + e + "a\nL" + e + "b\nL" + e + "c");
+            expected.add("L" + e + "a");
+            expected.add("L" + e + "b");
+            expected.add("L" + e + "c");
+        }
+        area.appendLines(entries);
+        area.closeTranscript();
+
+        assertEquals(expected, Files.readAllLines(file.toPath()));
+        assertTrue(area.getLineCount() <= 10);
+        assertTrue(area.getText().endsWith("L7a\nL7b\nL7c\n"));
+    }
+
+    @Test
+    public void noTranscriptUntilLinesAreTrimmed() {
+        File file = dir.resolve("transcript.log").toFile();
+        BoundedLogArea area = new BoundedLogArea(10);
+        area.spillTo(file);
+
+        area.appendLines(List.of("a\nb", "c"));
+        area.closeTranscript();
+
+        assertFalse(file.exists());
+        assertNull(area.getTranscriptFile());
+    }
+
+    @Test
+    public void transcriptThatCantBeOpenedIsReportedInTheView() {
+        File file = dir.resolve("missing").resolve("transcript.log").toFile();
+        BoundedLogArea area = new BoundedLogArea(3);
+        area.spillTo(file);
+
+        area.appendLines(List.of("a", "b", "c", "d"));
+
+        assertNull(area.getTranscriptFile());
+        assertTrue(area.getText().contains("Could not open the transcript"));
+    }
+}